@@ -0,0 +1,56 @@
+package org.statefulj.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.model.Action;
+import org.statefulj.fsm.model.impl.CompositeActionImpl;
+
+/**
+ * Dispatch overhead of {@link CompositeActionImpl} over a growing number of Actions
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompositeActionBenchmark {
+
+    @Param({ "1", "4", "16" })
+    public int actions;
+
+    private CompositeActionImpl<Entity> composite;
+    private Entity entity;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        this.blackhole = blackhole;
+        final List<Action<Entity>> list = new ArrayList<>(actions);
+        for (int i = 0; i < actions; i++) {
+            list.add((stateful, event, args) -> this.blackhole.consume(stateful));
+        }
+        composite = new CompositeActionImpl<>(list);
+        entity = new Entity();
+    }
+
+    @Benchmark
+    public void execute() throws RetryException {
+        composite.execute(entity, "event");
+    }
+}
@@ -0,0 +1,21 @@
+package org.statefulj.benchmarks;
+
+import org.statefulj.persistence.annotations.State;
+
+/**
+ * Stateful Entity shared by the benchmarks
+ */
+public class Entity {
+    @State
+    String state;
+
+    long counter;
+
+    public String getState() {
+        return state;
+    }
+
+    void touch(final String event, final Object... args) {
+        counter++;
+    }
+}
@@ -0,0 +1,95 @@
+package org.statefulj.benchmarks;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.statefulj.fsm.FSM;
+import org.statefulj.fsm.TooBusyException;
+import org.statefulj.fsm.model.impl.StateActionPairImpl;
+import org.statefulj.fsm.model.impl.StateImpl;
+import org.statefulj.persistence.memory.MemoryPersisterImpl;
+
+/**
+ * Cost of a single {@link FSM#onEvent(Object, String, Object...)} for each kind of Transition, using the {@link MemoryPersisterImpl}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FSMBenchmark {
+    static final String TOGGLE = "toggle";
+    static final String NOOP = "noop";
+    static final String FLIP = "flip";
+    static final String BLOCK = "block";
+
+    private Entity deterministic;
+    private Entity nonDeterministic;
+    private Entity blocked;
+    private FSM<Entity> fsm;
+    private FSM<Entity> blockingFsm;
+
+    @Setup
+    public void setup() {
+        final org.statefulj.fsm.model.State<Entity> stateA = new StateImpl<>("A");
+        final org.statefulj.fsm.model.State<Entity> stateB = new StateImpl<>("B");
+        final org.statefulj.fsm.model.State<Entity> stateC = new StateImpl<>("C", false, true);
+
+        stateA.addTransition(TOGGLE, stateB, Entity::touch);
+        stateB.addTransition(TOGGLE, stateA, Entity::touch);
+        stateA.addTransition(FLIP, stateful -> new StateActionPairImpl<>(((stateful.counter++ & 1) == 0) ? stateA : stateB, null));
+        stateB.addTransition(FLIP, stateful -> new StateActionPairImpl<>(((stateful.counter++ & 1) == 0) ? stateA : stateB, null));
+
+        final List<org.statefulj.fsm.model.State<Entity>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        fsm = new FSM<>("Benchmark", new MemoryPersisterImpl<>(states, stateA));
+
+        // A single attempt without waiting measures the cost of detecting and rejecting an event in a blocking State
+        //
+        blockingFsm = new FSM<>("Blocking", new MemoryPersisterImpl<>(states, stateA), 1, 0);
+
+        deterministic = new Entity();
+        nonDeterministic = new Entity();
+        blocked = new Entity();
+        blocked.state = stateC.getName();
+    }
+
+    @Benchmark
+    public Object deterministic() throws TooBusyException {
+        return fsm.onEvent(deterministic, TOGGLE);
+    }
+
+    @Benchmark
+    public Object noop() throws TooBusyException {
+        return fsm.onEvent(deterministic, NOOP);
+    }
+
+    @Benchmark
+    public Object nonDeterministic() throws TooBusyException {
+        return fsm.onEvent(nonDeterministic, FLIP);
+    }
+
+    @Benchmark
+    public Object blocking() {
+        try {
+            return blockingFsm.onEvent(blocked, BLOCK);
+        } catch (final TooBusyException e) {
+            return e;
+        }
+    }
+}
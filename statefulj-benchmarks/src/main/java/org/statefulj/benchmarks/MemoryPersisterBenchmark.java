@@ -0,0 +1,65 @@
+package org.statefulj.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.model.impl.StateImpl;
+import org.statefulj.persistence.memory.MemoryPersisterImpl;
+
+/**
+ * {@link MemoryPersisterImpl} reads and compare-and-set updates of a single, shared Stateful Entity. Run with -t to measure contention, e.g. -t 1, -t 4, -t 16
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemoryPersisterBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean lockFree;
+
+    private MemoryPersisterImpl<Entity> persister;
+    private org.statefulj.fsm.model.State<Entity> stateA;
+    private org.statefulj.fsm.model.State<Entity> stateB;
+    private Entity entity;
+
+    @Setup
+    public void setup() {
+        stateA = new StateImpl<>("A");
+        stateB = new StateImpl<>("B");
+        persister = new MemoryPersisterImpl<>(Arrays.asList(stateA, stateB), stateA);
+        persister.setLockFree(lockFree);
+        entity = new Entity();
+        persister.setCurrent(entity, stateA);
+    }
+
+    @Benchmark
+    public Object getCurrent() {
+        return persister.getCurrent(entity);
+    }
+
+    @Benchmark
+    public boolean setCurrent() {
+        final org.statefulj.fsm.model.State<Entity> current = persister.getCurrent(entity);
+        try {
+            persister.setCurrent(entity, current, (current == stateA) ? stateB : stateA);
+            return true;
+        } catch (final StaleStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.statefulj.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.statefulj.framework.core.actions.MethodInvocationAction;
+import org.statefulj.framework.core.fsm.InvocationContext;
+import org.statefulj.fsm.RetryException;
+
+/**
+ * The framework dispatch path from an FSM Action to a {@link org.statefulj.framework.core.annotations.StatefulController} method. Run with
+ * <code>-prof gc</code> to see the allocations per event in gc.alloc.rate.norm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MethodInvocationActionBenchmark {
+
+    public static class Controller {
+
+        public String handle(final Entity entity, final String event, final Object parm) {
+            return event;
+        }
+
+        public Entity handleNoParms(final Entity entity, final String event) {
+            return entity;
+        }
+    }
+
+    private MethodInvocationAction action;
+    private MethodInvocationAction noParmsAction;
+    private Entity entity;
+    private Object[] args;
+    private Object[] noArgs;
+
+    @Setup
+    public void setup() {
+        final Controller controller = new Controller();
+        action = new MethodInvocationAction("handle", new Class<?>[] { Entity.class, String.class, Object.class }, null, controller);
+        noParmsAction = new MethodInvocationAction("handleNoParms", new Class<?>[] { Entity.class, String.class }, null, controller);
+        entity = new Entity();
+        args = new Object[] { new Object() };
+        noArgs = new Object[0];
+    }
+
+    @Benchmark
+    public Object invoke() throws RetryException {
+        final InvocationContext<Object> invocation = new InvocationContext<>(null, args, 0);
+        action.execute(entity, "event", invocation);
+        return invocation.getReturnValue();
+    }
+
+    @Benchmark
+    public Object invokeNoParms() throws RetryException {
+        final InvocationContext<Object> invocation = new InvocationContext<>(null, noArgs, 0);
+        noParmsAction.execute(entity, "event", invocation);
+        return invocation.getReturnValue();
+    }
+}
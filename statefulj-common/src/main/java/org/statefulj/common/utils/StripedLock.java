@@ -0,0 +1,46 @@
+package org.statefulj.common.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of {@link ReentrantLock}s selected by the identity hash of an object. Used in place of synchronizing on the object itself, which pins the carrier
+ * of a virtual thread while the lock is held
+ */
+public class StripedLock {
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes
+     *            Number of locks, rounded up to a power of two
+     */
+    public StripedLock(final int stripes) {
+        final int size = (stripes <= 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public ReentrantLock get(final Object obj) {
+        return stripe(System.identityHashCode(obj));
+    }
+
+    /**
+     * Select the lock by the hash code of a key instead of its identity, for keys such as ids whose equal values may be distinct instances
+     */
+    public ReentrantLock getByKey(final Object key) {
+        return stripe(key.hashCode());
+    }
+
+    private ReentrantLock stripe(final int h) {
+        return locks[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -16,6 +16,7 @@ import org.statefulj.framework.binders.common.utils.JavassistUtils;
 import org.statefulj.framework.core.model.EndpointBinder;
 import org.statefulj.framework.core.model.FSMHarness;
 import org.statefulj.framework.core.model.ReferenceFactory;
+import org.statefulj.framework.core.processor.BinderGenerator;
 
 import javassist.CannotCompileException;
 import javassist.ClassClassPath;
@@ -84,18 +85,34 @@ public class CamelBinder implements EndpointBinder {
 
     public Class<?> bindEndpoints(final String beanName, final Class<?> controllerClass, final Class<?> idType, final boolean isDomainEntity, final Map<String, Method> eventMapping,
             final ReferenceFactory refFactory) throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        return bindEndpoints(beanName, controllerClass, idType, isDomainEntity, eventMapping, refFactory, new BinderGenerator(null, controllerClass.getClassLoader()));
+    }
+
+    @Override
+    public Class<?> bindEndpoints(final String beanName, final Class<?> controllerClass, final Class<?> idType, final boolean isDomainEntity, final Map<String, Method> eventMapping,
+            final ReferenceFactory refFactory, final BinderGenerator generator)
+            throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        final String camelProxyClassName = controllerClass.getName() + CONSUMER_SUFFIX;
+        final String fingerprint = BinderGenerator.fingerprint(getClass(), beanName, controllerClass, idType, isDomainEntity, eventMapping, refFactory.getFSMHarnessId());
+
+        // Use the Consumer generated at build time, if there is one and it's current
+        //
+        final Class<?> precompiled = generator.findPrecompiled(camelProxyClassName, fingerprint);
+        if (precompiled != null) {
+            return precompiled;
+        }
+
         CamelBinder.logger.debug("Building Consumer for {}", controllerClass);
 
         final ClassPool cp = ClassPool.getDefault();
         cp.appendClassPath(new ClassClassPath(getClass()));
 
-        final String camelProxyClassName = controllerClass.getName() + CONSUMER_SUFFIX;
         final CtClass camelProxyClass = cp.makeClass(camelProxyClassName);
 
         addFSMHarnessReference(camelProxyClass, refFactory.getFSMHarnessId(), cp);
         addConsumerMethods(camelProxyClass, eventMapping, cp);
 
-        return camelProxyClass.toClass();
+        return generator.define(camelProxyClass, fingerprint);
     }
 
     private void addFSMHarnessReference(final CtClass camelProxyClass, final String fsmHarnessId, final ClassPool cp) throws NotFoundException, CannotCompileException {
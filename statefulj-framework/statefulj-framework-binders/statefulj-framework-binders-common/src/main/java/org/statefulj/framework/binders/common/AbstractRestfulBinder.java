@@ -20,6 +20,7 @@ import org.statefulj.framework.binders.common.utils.JavassistUtils;
 import org.statefulj.framework.core.model.EndpointBinder;
 import org.statefulj.framework.core.model.FSMHarness;
 import org.statefulj.framework.core.model.ReferenceFactory;
+import org.statefulj.framework.core.processor.BinderGenerator;
 
 import javassist.CannotCompileException;
 import javassist.ClassClassPath;
@@ -45,15 +46,30 @@ public abstract class AbstractRestfulBinder implements EndpointBinder {
     @Override
     public Class<?> bindEndpoints(final String beanName, final Class<?> statefulControllerClass, final Class<?> idType, final boolean isDomainEntity, final Map<String, Method> eventMapping,
             final ReferenceFactory refFactory) throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        return bindEndpoints(beanName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory, new BinderGenerator(null, statefulControllerClass.getClassLoader()));
+    }
+
+    @Override
+    public Class<?> bindEndpoints(final String beanName, final Class<?> statefulControllerClass, final Class<?> idType, final boolean isDomainEntity, final Map<String, Method> eventMapping,
+            final ReferenceFactory refFactory, final BinderGenerator generator)
+            throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+
+        final String proxyClassName = statefulControllerClass.getName() + getSuffix();
+        final String fingerprint = BinderGenerator.fingerprint(getClass(), beanName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory.getFSMHarnessId());
+
+        // Use the proxy generated at build time, if there is one and it's current
+        //
+        final Class<?> precompiled = generator.findPrecompiled(proxyClassName, fingerprint);
+        if (precompiled != null) {
+            return precompiled;
+        }
 
         AbstractRestfulBinder.logger.debug("Building proxy for {}", statefulControllerClass);
 
         final ClassPool cp = ClassPool.getDefault();
         cp.appendClassPath(new ClassClassPath(getClass()));
 
-        final String proxyClassName = statefulControllerClass.getName() + getSuffix();
-
-        return buildProxy(cp, beanName, proxyClassName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory).toClass();
+        return generator.define(buildProxy(cp, beanName, proxyClassName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory), fingerprint);
     }
 
     protected CtClass buildProxy(final ClassPool cp, final String beanName, final String proxyClassName, final Class<?> statefulControllerClass, final Class<?> idType, final boolean isDomainEntity,
@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import org.statefulj.framework.binders.common.AbstractRestfulBinder;
 import org.statefulj.framework.binders.common.utils.JavassistUtils;
 import org.statefulj.framework.core.model.ReferenceFactory;
+import org.statefulj.framework.core.processor.BinderGenerator;
 
 import javassist.CannotCompileException;
 import javassist.ClassPool;
@@ -36,9 +37,10 @@ public class JerseyBinder extends AbstractRestfulBinder {
 
     @Override
     public Class<?> bindEndpoints(final String beanName, final Class<?> statefulControllerClass, final Class<?> idType, final boolean isDomainEntity, final Map<String, Method> eventMapping,
-            final ReferenceFactory refFactory) throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+            final ReferenceFactory refFactory, final BinderGenerator generator)
+            throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
 
-        final Class<?> binding = super.bindEndpoints(beanName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory);
+        final Class<?> binding = super.bindEndpoints(beanName, statefulControllerClass, idType, isDomainEntity, eventMapping, refFactory, generator);
 
         BindingsRegistry.addBinding(binding);
 
@@ -1,5 +1,7 @@
 package org.statefulj.framework.core;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -25,6 +27,7 @@ import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.annotation.QualifierAnnotationAutowireCandidateResolver;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -42,27 +45,34 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.MethodParameter;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.ClassUtils;
 import org.statefulj.common.utils.ReflectionUtils;
 import org.statefulj.framework.core.actions.DomainEntityMethodInvocationAction;
 import org.statefulj.framework.core.actions.MethodInvocationAction;
 import org.statefulj.framework.core.annotations.StatefulController;
 import org.statefulj.framework.core.annotations.Transition;
 import org.statefulj.framework.core.annotations.Transitions;
+import org.statefulj.framework.core.fsm.AfterCommitExecutor;
 import org.statefulj.framework.core.fsm.FSM;
 import org.statefulj.framework.core.fsm.TransitionImpl;
 import org.statefulj.framework.core.model.EndpointBinder;
 import org.statefulj.framework.core.model.PersistenceSupportBeanFactory;
 import org.statefulj.framework.core.model.ReferenceFactory;
 import org.statefulj.framework.core.model.StatefulFSM;
+import org.statefulj.framework.core.model.impl.FSMHarnessImpl;
 import org.statefulj.framework.core.model.impl.MemoryPersistenceSupportBeanFactoryImpl;
 import org.statefulj.framework.core.model.impl.ReferenceFactoryImpl;
 import org.statefulj.framework.core.model.impl.StatefulFSMImpl;
+import org.statefulj.framework.core.processor.BinderGenerator;
+import org.statefulj.framework.core.processor.StatefulIndex;
+import org.statefulj.framework.core.processor.StatefulIndexProcessor;
+import org.statefulj.fsm.CachingPersister;
 import org.statefulj.fsm.model.impl.StateImpl;
 
 import javassist.CannotCompileException;
 import javassist.NotFoundException;
 
-public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, ApplicationContextAware {
+public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, ApplicationContextAware, BeanClassLoaderAware {
 
     private ApplicationContext appContext;
 
@@ -70,6 +80,8 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
 
     private static final Logger logger = LoggerFactory.getLogger(StatefulFactory.class);
 
+    private static final String TRANSACTION_SYNCHRONIZATION_CLASS = "org.springframework.transaction.support.TransactionSynchronizationManager";
+
     private final Pattern binder = Pattern.compile("(([^:]*):)?(.*)");
 
     private final Map<Class<?>, Set<String>> entityToControllerMappings = new HashMap<>();
@@ -78,6 +90,18 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
 
     private final String[] packages;
 
+    private boolean scan = false;
+
+    private File binderOutputDirectory;
+
+    private ClassLoader beanClassLoader = ClassUtils.getDefaultClassLoader();
+
+    private Reflections reflections;
+
+    private Set<String> unindexedPackages;
+
+    private Reflections unindexedReflections;
+
     public StatefulFactory() {
         this(StatefulFactory.DEFAULT_PACKAGE);
     }
@@ -86,6 +110,37 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         this.packages = packages;
     }
 
+    public boolean isScan() {
+        return scan;
+    }
+
+    /**
+     * @param scan
+     *            true to scan all the packages for {@link EndpointBinder} and {@link PersistenceSupportBeanFactory} implementations, even those with indexed
+     *            implementations. Packages without any indexed implementation are always scanned; only a package that mixes indexed implementations with
+     *            ones compiled without annotation processing needs it
+     */
+    public void setScan(final boolean scan) {
+        this.scan = scan;
+    }
+
+    public File getBinderOutputDirectory() {
+        return binderOutputDirectory;
+    }
+
+    /**
+     * @param binderOutputDirectory
+     *            The directory to write the binder classes to, when generating them at build time. Null to use the precompiled binder classes, if current
+     */
+    public void setBinderOutputDirectory(final File binderOutputDirectory) {
+        this.binderOutputDirectory = binderOutputDirectory;
+    }
+
+    @Override
+    public void setBeanClassLoader(final ClassLoader beanClassLoader) {
+        this.beanClassLoader = beanClassLoader;
+    }
+
     class FSMAnnotationResolver extends QualifierAnnotationAutowireCandidateResolver {
         @Override
         public Object getSuggestedValue(final DependencyDescriptor descriptor) {
@@ -196,12 +251,11 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
     public void postProcessBeanDefinitionRegistry(final BeanDefinitionRegistry reg) throws BeansException {
         StatefulFactory.logger.debug("postProcessBeanDefinitionRegistry : enter");
         try {
-            final Reflections reflections = new Reflections((Object[]) packages);
             final Map<String, EndpointBinder> binders = new HashMap<>();
-            loadEndpointBinders(reflections, binders);
+            loadEndpointBinders(findImplementations(EndpointBinder.class), binders);
 
             final Map<Class<?>, PersistenceSupportBeanFactory> persistenceFactories = new HashMap<>();
-            loadPersistenceSupportBeanFactories(reflections, persistenceFactories);
+            loadPersistenceSupportBeanFactories(findImplementations(PersistenceSupportBeanFactory.class), persistenceFactories);
 
             final Map<String, Class<?>> controllerToEntityMapping = new HashMap<>();
             final Map<Class<?>, String> entityToRepositoryMappings = new HashMap<>();
@@ -247,7 +301,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
 
     private void mapEntityToRepository(final Map<Class<?>, String> entityToRepositoryMapping, final String bfName, final BeanDefinition bf) throws ClassNotFoundException {
         final String value = (String) bf.getPropertyValues().getPropertyValue("repositoryInterface").getValue();
-        final Class<?> repoInterface = Class.forName(value);
+        final Class<?> repoInterface = ClassUtils.forName(value, beanClassLoader);
         Class<?> entityType = null;
         for (final Type type : repoInterface.getGenericInterfaces()) {
             if (type instanceof ParameterizedType) {
@@ -285,7 +339,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
 
     private void buildFramework(final String statefulControllerBeanId, final Class<?> statefulControllerClass, final BeanDefinitionRegistry reg, final Map<Class<?>, String> entityToRepositoryMappings,
             final Map<String, EndpointBinder> binders, final Map<Class<?>, PersistenceSupportBeanFactory> persistenceFactories)
-            throws CannotCompileException, IllegalArgumentException, NotFoundException, IllegalAccessException, InvocationTargetException, ClassNotFoundException {
+            throws CannotCompileException, IllegalArgumentException, NotFoundException, IllegalAccessException, InvocationTargetException, ClassNotFoundException, InstantiationException {
 
         final StatefulController scAnnotation = ReflectionUtils.getFirstClassAnnotation(statefulControllerClass, StatefulController.class);
         final Class<?> managedClass = scAnnotation.clazz();
@@ -296,22 +350,28 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         final Map<Transition, Method> anyMapping = new HashMap<>();
         final Set<String> states = new HashSet<>();
         final Set<String> blockingStates = new HashSet<>();
+        final Set<String> deferredStates = new HashSet<>();
 
         final String repoBeanId = getRepoId(entityToRepositoryMappings, managedClass);
 
         PersistenceSupportBeanFactory factory = null;
         BeanDefinition repoBeanDefinitionFactory = null;
 
-        if (repoBeanId == null) {
+        if (repoBeanId != null) {
+            repoBeanDefinitionFactory = reg.getBeanDefinition(repoBeanId);
+        }
+
+        if (!PersistenceSupportBeanFactory.class.equals(scAnnotation.persistenceSupport())) {
+            factory = scAnnotation.persistenceSupport().newInstance();
+        } else if (repoBeanId == null) {
             StatefulFactory.logger.warn("Unable to find Spring Data Repository for {}, using an in-memory persister", managedClass.getName());
             factory = memoryPersistenceFactory;
         } else {
-            repoBeanDefinitionFactory = reg.getBeanDefinition(repoBeanId);
             final Class<?> repoClassName = getClassFromBeanClassName(repoBeanDefinitionFactory);
             factory = persistenceFactories.get(repoClassName);
         }
 
-        mapEventsTransitionsAndStates(statefulControllerClass, providersMappings, transitionMapping, anyMapping, states, blockingStates);
+        mapEventsTransitionsAndStates(statefulControllerClass, providersMappings, transitionMapping, anyMapping, states, blockingStates, deferredStates);
 
         final boolean hasBinders = (providersMappings.size() > 0);
 
@@ -324,7 +384,8 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
                     throw new RuntimeException("Unable to locate binder: " + entry.getKey());
                 }
 
-                final Class<?> binderClass = binder.bindEndpoints(statefulControllerBeanId, statefulControllerClass, factory.getIdType(), isDomainEntity, entry.getValue(), referenceFactory);
+                final Class<?> binderClass = binder.bindEndpoints(statefulControllerBeanId, statefulControllerClass, factory.getIdType(), isDomainEntity, entry.getValue(), referenceFactory,
+                        new BinderGenerator(binderOutputDirectory, beanClassLoader));
                 registerBinderBean(entry.getKey(), referenceFactory, binderClass, reg);
             }
         }
@@ -367,16 +428,17 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         }
 
         final String persisterId = registerPersisterBean(referenceFactory, factory, scAnnotation, managedClass, repoBeanId, repoBeanDefinitionFactory, stateBeans, reg);
-        final String fsmBeanId = registerFSM(referenceFactory, statefulControllerClass, scAnnotation, persisterId, managedClass, finderId, factory.getIdAnnotationType(), reg);
+        final String fsmBeanId = registerFSM(referenceFactory, statefulControllerClass, scAnnotation, persisterId, managedClass, finderId, factory.getIdAnnotationType(), deferredStates,
+                reg);
         final String statefulFSMBeanId = registerStatefulFSMBean(referenceFactory, managedClass, fsmBeanId, factoryId, transitionIds, reg);
 
         if (hasBinders) {
-            registerFSMHarness(referenceFactory, factory, managedClass, statefulFSMBeanId, factoryId, finderId, repoBeanDefinitionFactory, reg);
+            registerFSMHarness(referenceFactory, factory, managedClass, statefulFSMBeanId, factoryId, finderId, repoBeanDefinitionFactory, persisterId, stateBeans, reg);
         }
     }
 
     private void mapEventsTransitionsAndStates(final Class<?> statefulControllerClass, final Map<String, Map<String, Method>> providerMappings, final Map<Transition, Method> transitionMapping,
-            final Map<Transition, Method> anyMapping, final Set<String> states, final Set<String> blockingStates)
+            final Map<Transition, Method> anyMapping, final Set<String> states, final Set<String> blockingStates, final Set<String> deferredStates)
             throws IllegalArgumentException, NotFoundException, IllegalAccessException, InvocationTargetException, CannotCompileException {
 
         // Walk up the Class hierarchy building out the FSM
@@ -384,7 +446,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         if (statefulControllerClass == null) {
             return;
         } else {
-            mapEventsTransitionsAndStates(statefulControllerClass.getSuperclass(), providerMappings, transitionMapping, anyMapping, states, blockingStates);
+            mapEventsTransitionsAndStates(statefulControllerClass.getSuperclass(), providerMappings, transitionMapping, anyMapping, states, blockingStates, deferredStates);
         }
 
         StatefulFactory.logger.debug("Mapping events and transitions for {}", statefulControllerClass);
@@ -396,6 +458,8 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         if (ctrlAnnotation != null) {
             states.add(ctrlAnnotation.startState());
             blockingStates.addAll(Arrays.asList(ctrlAnnotation.blockingStates()));
+            blockingStates.addAll(Arrays.asList(ctrlAnnotation.deferredStates()));
+            deferredStates.addAll(Arrays.asList(ctrlAnnotation.deferredStates()));
             for (final Transition transition : ctrlAnnotation.noops()) {
                 mapTransition(transition, null, providerMappings, transitionMapping, anyMapping, states);
             }
@@ -526,7 +590,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
     }
 
     private String registerFSM(final ReferenceFactory referenceFactory, final Class<?> statefulControllerClass, final StatefulController scAnnotation, final String persisterId,
-            final Class<?> managedClass, final String finderId, final Class<? extends Annotation> idAnnotationType, final BeanDefinitionRegistry reg) {
+            final Class<?> managedClass, final String finderId, final Class<? extends Annotation> idAnnotationType, final Set<String> deferredStates, final BeanDefinitionRegistry reg) {
         final int retryAttempts = scAnnotation.retryAttempts();
         final int retryInterval = scAnnotation.retryInterval();
 
@@ -545,6 +609,18 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
             args.addIndexedArgumentValue(7, new RuntimeBeanReference(finderId));
         }
 
+        if (!deferredStates.isEmpty()) {
+            fsmBean.getPropertyValues().add("deferredStates", deferredStates);
+        }
+
+        if (!StringUtils.isEmpty(scAnnotation.retryPolicyId())) {
+            fsmBean.getPropertyValues().add("retryPolicy", new RuntimeBeanReference(scAnnotation.retryPolicyId()));
+        }
+
+        if (!scAnnotation.autowire()) {
+            fsmBean.getPropertyValues().add("autowire", false);
+        }
+
         reg.registerBeanDefinition(fsmBeanId, fsmBean);
         return fsmBeanId;
     }
@@ -608,27 +684,68 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
             final Class<?> statefulClass, final String repoBeanId, final BeanDefinition repoBeanDefinitionFactory, final List<RuntimeBeanReference> stateBeans, final BeanDefinitionRegistry reg) {
 
         String persisterId = statefulContollerAnnotation.persisterId();
+        final boolean customPersister = !StringUtils.isEmpty(persisterId);
 
-        if (StringUtils.isEmpty(persisterId)) {
+        if (!customPersister) {
             if (persistenceFactory == null) {
                 throw new RuntimeException("PersistenceFactory is undefined and no persister bean was specified in the StatefulController Annotation for " + statefulContollerAnnotation.clazz());
             }
             final String startStateId = referenceFactory.getStateId(statefulContollerAnnotation.startState());
             persisterId = referenceFactory.getPersisterId();
-            reg.registerBeanDefinition(persisterId,
-                    persistenceFactory.buildPersisterBean(statefulClass, repoBeanId, repoBeanDefinitionFactory, statefulContollerAnnotation.stateField(), startStateId, stateBeans));
+            final BeanDefinition persisterBean = persistenceFactory.buildPersisterBean(statefulClass, repoBeanId, repoBeanDefinitionFactory, statefulContollerAnnotation.stateField(),
+                    startStateId, stateBeans);
+            if (statefulContollerAnnotation.stateCodes().length > 0) {
+                persisterBean.getPropertyValues().add("stateCodes", Arrays.asList(statefulContollerAnnotation.stateCodes()));
+            }
+            reg.registerBeanDefinition(persisterId, persisterBean);
+        }
+
+        // The Persisters built by the PersistenceFactory read the State off the Stateful Entity, there is nothing to gain from caching them
+        //
+        if ((statefulContollerAnnotation.stateCacheSize() > 0) && !customPersister) {
+            StatefulFactory.logger.warn("Ignoring the stateCacheSize of {}, only the States of a custom persister are cached", statefulContollerAnnotation.clazz());
+        } else if (statefulContollerAnnotation.stateCacheSize() > 0) {
+            if (persistenceFactory == null) {
+                throw new RuntimeException("PersistenceFactory is undefined, unable to cache the States of " + statefulContollerAnnotation.clazz());
+            }
+            final String cachingPersisterId = referenceFactory.getCachingPersisterId();
+            final BeanDefinition cachingPersisterBean = BeanDefinitionBuilder.genericBeanDefinition(CachingPersister.class).setFactoryMethod("create").getBeanDefinition();
+            if (ClassUtils.isPresent(TRANSACTION_SYNCHRONIZATION_CLASS, beanClassLoader)) {
+                cachingPersisterBean.getPropertyValues().add("afterCommit", new AfterCommitExecutor());
+            }
+            final ConstructorArgumentValues args = cachingPersisterBean.getConstructorArgumentValues();
+            args.addIndexedArgumentValue(0, new RuntimeBeanReference(persisterId));
+            args.addIndexedArgumentValue(1, statefulContollerAnnotation.stateCacheSize());
+            args.addIndexedArgumentValue(2, statefulClass);
+            args.addIndexedArgumentValue(3, persistenceFactory.getIdAnnotationType());
+            reg.registerBeanDefinition(cachingPersisterId, cachingPersisterBean);
+            persisterId = cachingPersisterId;
         }
 
         return persisterId;
     }
 
     private String registerFSMHarness(final ReferenceFactory referenceFactory, final PersistenceSupportBeanFactory persistenceFactory, final Class<?> statefulClass, final String fsmBeanId,
-            final String factoryId, final String finderId, final BeanDefinition repoBeanFactory, final BeanDefinitionRegistry reg) {
+            final String factoryId, final String finderId, final BeanDefinition repoBeanFactory, final String persisterId, final List<RuntimeBeanReference> stateBeans,
+            final BeanDefinitionRegistry reg) {
         final String fsmHarnessId = referenceFactory.getFSMHarnessId();
-        reg.registerBeanDefinition(fsmHarnessId, persistenceFactory.buildFSMHarnessBean(statefulClass, fsmBeanId, factoryId, finderId, repoBeanFactory));
+        final BeanDefinition fsmHarness = persistenceFactory.buildFSMHarnessBean(statefulClass, fsmBeanId, factoryId, finderId, repoBeanFactory);
+        if (isFSMHarnessImpl(fsmHarness)) {
+            fsmHarness.getPropertyValues().add("states", stateBeans);
+            fsmHarness.getPropertyValues().add("persister", new RuntimeBeanReference(persisterId));
+        }
+        reg.registerBeanDefinition(fsmHarnessId, fsmHarness);
         return fsmHarnessId;
     }
 
+    private boolean isFSMHarnessImpl(final BeanDefinition fsmHarness) {
+        try {
+            return (fsmHarness.getBeanClassName() != null) && FSMHarnessImpl.class.isAssignableFrom(ClassUtils.forName(fsmHarness.getBeanClassName(), beanClassLoader));
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+
     private String getRepoId(final Map<Class<?>, String> entityToRepositoryMappings, final Class<?> clazz) {
         if (clazz != null) {
             String id = entityToRepositoryMappings.get(clazz);
@@ -666,7 +783,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
     }
 
     private Class<?> getClassFromBeanClassName(final BeanDefinition bf) throws ClassNotFoundException {
-        return Class.forName(bf.getBeanClassName());
+        return ClassUtils.forName(bf.getBeanClassName(), beanClassLoader);
     }
 
     private Class<?> getClassFromParentBean(final BeanDefinition bf, final BeanDefinitionRegistry reg) throws ClassNotFoundException {
@@ -688,7 +805,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
             final BeanDefinition factory = reg.getBeanDefinition(factoryBeanName);
             if (factory != null) {
                 final String factoryClassName = factory.getBeanClassName();
-                final Class<?> factoryClass = Class.forName(factoryClassName);
+                final Class<?> factoryClass = ClassUtils.forName(factoryClassName, beanClassLoader);
                 final List<Method> methods = new LinkedList<>();
                 methods.addAll(Arrays.asList(factoryClass.getMethods()));
                 methods.addAll(Arrays.asList(factoryClass.getDeclaredMethods()));
@@ -704,13 +821,44 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         return clazz;
     }
 
-    private void loadPersistenceSupportBeanFactories(final Reflections reflections, final Map<Class<?>, PersistenceSupportBeanFactory> persistenceFactories)
-            throws InstantiationException, IllegalAccessException {
-        final Set<Class<? extends PersistenceSupportBeanFactory>> persistenceFactoryTypes = reflections.getSubTypesOf(PersistenceSupportBeanFactory.class);
+    /**
+     * Look up the implementations in the index written by the {@link StatefulIndexProcessor}, and scan the packages that have nothing indexed. If there is no
+     * index, or scanning is forced, scan all the packages
+     */
+    private <T> Set<Class<? extends T>> findImplementations(final Class<T> type) throws IOException {
+        final Set<Class<? extends T>> indexed = (scan) ? null : StatefulIndex.load(type, beanClassLoader, packages);
+        if (indexed == null) {
+            if (reflections == null) {
+                StatefulFactory.logger.debug("Scanning {} for framework extensions", Arrays.toString(packages));
+                reflections = new Reflections(packages, beanClassLoader);
+            }
+            return reflections.getSubTypesOf(type);
+        }
+        StatefulFactory.logger.debug("Loaded {} {} from the index", indexed.size(), type.getSimpleName());
+
+        if (unindexedPackages == null) {
+            unindexedPackages = StatefulIndex.unindexedPackages(beanClassLoader, packages);
+            if (!unindexedPackages.isEmpty()) {
+                StatefulFactory.logger.warn("No framework extensions are indexed in {}, scanning them. Compile them with the StatefulIndexProcessor to skip the scan",
+                        unindexedPackages);
+                unindexedReflections = new Reflections(unindexedPackages.toArray(), beanClassLoader);
+            }
+        }
+        if (unindexedReflections != null) {
+            indexed.addAll(unindexedReflections.getSubTypesOf(type));
+        }
+        return indexed;
+    }
+
+    private void loadPersistenceSupportBeanFactories(final Set<Class<? extends PersistenceSupportBeanFactory>> persistenceFactoryTypes,
+            final Map<Class<?>, PersistenceSupportBeanFactory> persistenceFactories) throws InstantiationException, IllegalAccessException {
         for (final Class<?> persistenceFactoryType : persistenceFactoryTypes) {
             if (!Modifier.isAbstract(persistenceFactoryType.getModifiers())) {
                 final PersistenceSupportBeanFactory factory = (PersistenceSupportBeanFactory) persistenceFactoryType.newInstance();
                 final Class<?> key = factory.getKey();
+
+                // Factories without a key are only selected through StatefulController.persistenceSupport
+                //
                 if (key != null) {
                     persistenceFactories.put(key, factory);
                 }
@@ -718,8 +866,7 @@ public class StatefulFactory implements BeanDefinitionRegistryPostProcessor, App
         }
     }
 
-    private void loadEndpointBinders(final Reflections reflections, final Map<String, EndpointBinder> binders) throws InstantiationException, IllegalAccessException {
-        final Set<Class<? extends EndpointBinder>> endpointBinders = reflections.getSubTypesOf(EndpointBinder.class);
+    private void loadEndpointBinders(final Set<Class<? extends EndpointBinder>> endpointBinders, final Map<String, EndpointBinder> binders) throws InstantiationException, IllegalAccessException {
         for (final Class<?> binderClass : endpointBinders) {
             if (!Modifier.isAbstract(binderClass.getModifiers())) {
                 final EndpointBinder binder = (EndpointBinder) binderClass.newInstance();
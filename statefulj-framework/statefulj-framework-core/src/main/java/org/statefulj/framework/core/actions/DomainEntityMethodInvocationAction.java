@@ -18,9 +18,8 @@
 package org.statefulj.framework.core.actions;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.List;
 
+import org.statefulj.framework.core.fsm.InvocationContext;
 import org.statefulj.fsm.FSM;
 import org.statefulj.fsm.RetryException;
 
@@ -37,21 +36,21 @@ public class DomainEntityMethodInvocationAction extends MethodInvocationAction {
     }
 
     @Override
-    protected Object invoke(Object stateful, String event, List<Object> invokeParmList)
+    protected Object invoke(Object stateful, String event, Object[] methodParms)
             throws RetryException, SecurityException, IllegalArgumentException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        return invoke(stateful, invokeParmList);
+        return invoke(stateful, methodParms);
     }
 
     @Override
-    protected List<Object> buildInvokeParameters(Object stateful, String event, List<Object> parmList) {
+    protected Object[] buildInvokeParameters(Object stateful, String event, InvocationContext<?> invocation) {
 
-        // Add the Entity and Event to the parm list to pass to the Controller
-        // TODO : Inspect method signature - make entity and event optional
+        // Pass the Event, followed by the arguments, to the Domain Entity
+        // TODO : Inspect method signature - make event optional
         //
-        ArrayList<Object> invokeParmList = new ArrayList<Object>(parmList.size() + 1);
-        invokeParmList.add(event);
-        invokeParmList.addAll(parmList);
-
-        return invokeParmList;
+        Object[] methodParms = newInvokeParameters(1, invocation);
+        for (int i = 0; i < methodParms.length; i++) {
+            methodParms[i] = (i == 0) ? event : invocation.getArg(i - 1);
+        }
+        return methodParms;
     }
 }
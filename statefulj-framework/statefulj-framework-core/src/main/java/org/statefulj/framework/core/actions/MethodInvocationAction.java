@@ -17,19 +17,18 @@
  */
 package org.statefulj.framework.core.actions;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.util.ReflectionUtils;
-import org.statefulj.framework.core.fsm.ContextWrapper;
+import org.statefulj.framework.core.fsm.InvocationContext;
 import org.statefulj.fsm.FSM;
 import org.statefulj.fsm.RetryException;
 import org.statefulj.fsm.TooBusyException;
@@ -53,40 +52,40 @@ public class MethodInvocationAction implements Action<Object> {
 
     private FSM<Object> fsm;
 
+    // The method handle of each target class, spread over an Object[] of the parameters. Null if the class doesn't declare the method
+    //
+    private final ClassValue<MethodHandle> handles = new ClassValue<MethodHandle>() {
+
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private final MethodHandle controllerHandle;
+
     public MethodInvocationAction(String method, Class<?>[] parameters, FSM<Object> fsm, Object controller) {
         this.method = method;
         this.parameters = parameters;
         this.fsm = fsm;
         this.controller = controller;
+        this.controllerHandle = (controller != null) ? handles.get(controller.getClass()) : null;
     }
 
-    @SuppressWarnings("unchecked")
     public void execute(Object stateful, String event, Object... parms) throws RetryException {
         try {
 
-            // Parse out incoming parms to pass into the method
+            // The framework passes a single InvocationContext, wrap the parameters of anyone else
             //
-            List<Object> parmList = new ArrayList<Object>(Arrays.asList(parms));
+            InvocationContext<?> invocation = InvocationContext.of(parms);
 
-            // Remove the first Object in the parm list - it's our Return Value
+            // Build the parameters to pass into the method
             //
-            MutableObject<Object> returnValue = (MutableObject<Object>) parmList.remove(0);
-
-            // If there is a retry parameter object, pop it off
-            //
-            popOffRetryParms(parmList);
-
-            // Now build the list of parameters to pass into the method
-            //
-            List<Object> invokeParmList = buildInvokeParameters(stateful, event, parmList);
-
-            if (invokeParmList.size() < this.parameters.length) {
-                throw new RuntimeException("Incoming parameter list is incorrect, expected " + this.parameters.length + " parameters, but have " + invokeParmList.size());
-            }
+            Object[] methodParms = buildInvokeParameters(stateful, event, invocation);
 
             // Call the method on the Controller
             //
-            Object retVal = invoke(stateful, event, invokeParmList);
+            Object retVal = invoke(stateful, event, methodParms);
 
             // If the return value is a String prefixed with "event:", then it's an event
             // so forward the event to the FSM. Else, return the value as-is
@@ -96,10 +95,10 @@ public class MethodInvocationAction implements Action<Object> {
                 if ("event".equals(pair.getLeft())) {
                     this.fsm.onEvent(stateful, pair.getRight(), parms);
                 } else {
-                    returnValue.setValue(retVal);
+                    invocation.setReturnValue(retVal);
                 }
             } else {
-                returnValue.setValue(retVal);
+                invocation.setReturnValue(retVal);
             }
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
@@ -126,32 +125,63 @@ public class MethodInvocationAction implements Action<Object> {
         return this.method;
     }
 
-    protected Object invoke(Object stateful, String event, List<Object> invokeParmList)
+    protected Object invoke(Object stateful, String event, Object[] methodParms)
             throws RetryException, SecurityException, IllegalArgumentException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
-        return invoke(this.controller, invokeParmList);
+        return invoke(this.controller, methodParms);
     }
 
-    protected Object invoke(Object context, List<Object> invokeParmList) throws SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        Method method = ReflectionUtils.findMethod(context.getClass(), this.method, this.parameters);
-        if (method == null) {
+    protected Object invoke(Object context, Object[] methodParms) throws SecurityException, NoSuchMethodException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        MethodHandle handle = (context == this.controller && this.controllerHandle != null) ? this.controllerHandle : handles.get(context.getClass());
+        if (handle == null) {
             throw new NoSuchMethodException(this.method);
         }
-        Object[] methodParms = invokeParmList.subList(0, this.parameters.length).toArray();
-        method.setAccessible(true);
-        return method.invoke(context, methodParms);
+        try {
+            return (Object) handle.invokeExact(context, methodParms);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
-    protected List<Object> buildInvokeParameters(Object stateful, String event, List<Object> parmList) {
+    protected Object[] buildInvokeParameters(Object stateful, String event, InvocationContext<?> invocation) {
 
-        // Add the Entity and Event to the parm list to pass to the Controller
+        // Pass the Entity and Event, followed by the arguments, to the Controller
         // TODO : Inspect method signature - make entity and event optional
         //
-        ArrayList<Object> invokeParmList = new ArrayList<Object>(parmList.size() + 2);
-        invokeParmList.add(stateful);
-        invokeParmList.add(event);
-        invokeParmList.addAll(parmList);
+        Object[] methodParms = newInvokeParameters(2, invocation);
+        for (int i = 0; i < methodParms.length; i++) {
+            methodParms[i] = (i == 0) ? stateful : (i == 1) ? event : invocation.getArg(i - 2);
+        }
+        return methodParms;
+    }
 
-        return invokeParmList;
+    /**
+     * @param leading
+     *            Number of parameters passed ahead of the arguments of the event
+     * @return The array of the method parameters
+     */
+    protected Object[] newInvokeParameters(int leading, InvocationContext<?> invocation) {
+        if (leading + invocation.getArgCount() < this.parameters.length) {
+            throw new RuntimeException("Incoming parameter list is incorrect, expected " + this.parameters.length + " parameters, but have " + (leading + invocation.getArgCount()));
+        }
+        return new Object[this.parameters.length];
+    }
+
+    /**
+     * Look up the method once per class and adapt it to (Object, Object[])Object, so it can be invoked without reflection
+     */
+    private MethodHandle resolve(Class<?> type) {
+        Method method = ReflectionUtils.findMethod(type, this.method, this.parameters);
+        if (method == null) {
+            return null;
+        }
+        method.setAccessible(true);
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(MethodType.genericMethodType(this.parameters.length + 1)).asSpreader(Object[].class, this.parameters.length);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private Pair<String, String> parseResponse(String response) {
@@ -162,13 +192,4 @@ public class MethodInvocationAction implements Action<Object> {
         return new ImmutablePair<String, String>(matcher.group(2), matcher.group(3));
     }
 
-    /**
-     * @param parmList
-     */
-    private void popOffRetryParms(List<Object> parmList) {
-        if (parmList.size() > 0 && (parmList.get(0) instanceof ContextWrapper<?>)) {
-            parmList.remove(0);
-        }
-    }
-
 }
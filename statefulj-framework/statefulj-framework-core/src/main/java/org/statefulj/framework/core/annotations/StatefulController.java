@@ -7,6 +7,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.springframework.stereotype.Component;
+import org.statefulj.framework.core.model.PersistenceSupportBeanFactory;
 
 @Target({ ElementType.TYPE })
 @Retention(RetentionPolicy.RUNTIME)
@@ -22,6 +23,37 @@ public @interface StatefulController {
 
     String stateField() default "";
 
+    /**
+     * Names of the States in code order, for State fields that are an int or a short: the field holds the position of its State in this list. Codes are
+     * persisted, so new States must be appended; list the start State first so a zero field maps to it. Enum State fields map States by constant name and don't
+     * need codes
+     *
+     * @return State names in code order
+     */
+    String[] stateCodes() default {};
+
+    /**
+     * Number of Stateful Entity States to cache, by id, in front of the custom Persister named by {@link #persisterId()}. Zero disables the cache. The
+     * Persisters built by the framework read the State off the Stateful Entity and are never cached. The cache doesn't notice State changes made outside of it,
+     * so only enable it if all the State changes of the Stateful Entities go through this controller's FSM, or the custom Persister's setCurrent throws a
+     * StaleStateException when the expected State doesn't match. Within a Spring transaction, States are only cached once it commits
+     *
+     * @return maximum number of cached States
+     */
+    int stateCacheSize() default 0;
+
+    /**
+     * Whether to autowire the Stateful Entities before handling an event. Disable it for Stateful Entities that are @Configurable or are injected elsewhere.
+     * <p>
+     * Classes without injection points are never autowired. Injection points are fields and methods annotated with @Autowired, @Value, @Inject, @Resource,
+     * @PersistenceContext, @PersistenceUnit or @EJB, or with an annotation that is itself annotated with @Autowired or @Value. A custom annotation registered
+     * with AutowiredAnnotationBeanPostProcessor, or handled by another BeanPostProcessor, isn't recognised: annotate it with @Autowired, or add one of the
+     * above to the class, for its Stateful Entities to be autowired
+     *
+     * @return false to skip autowiring
+     */
+    boolean autowire() default true;
+
     String factoryId() default "";
 
     String finderId() default "";
@@ -30,9 +62,31 @@ public @interface StatefulController {
 
     String[] blockingStates() default {};
 
+    /**
+     * Blocking States whose events are queued and replayed once the Stateful Entity leaves the State, instead of being retried
+     *
+     * @return deferred States
+     */
+    String[] deferredStates() default {};
+
     Transition[] noops() default {};
 
     int retryAttempts() default 20;
 
     int retryInterval() default 250;
+
+    /**
+     * Id of a {@link org.statefulj.fsm.RetryPolicy} bean. If set, it replaces the fixed retryAttempts policy
+     *
+     * @return retry policy bean id
+     */
+    String retryPolicyId() default "";
+
+    /**
+     * Persistence support to build the Factory, Finder and Persister with, for entities that aren't persisted through a Spring Data repository factory. By
+     * default the support is selected from the repository of the managed class
+     *
+     * @return persistence support
+     */
+    Class<? extends PersistenceSupportBeanFactory> persistenceSupport() default PersistenceSupportBeanFactory.class;
 }
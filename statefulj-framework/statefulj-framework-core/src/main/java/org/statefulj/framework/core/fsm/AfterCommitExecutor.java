@@ -0,0 +1,27 @@
+package org.statefulj.framework.core.fsm;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs a task once the current Spring transaction commits, or right away if there is no transaction. Tasks of a rolled back transaction are dropped
+ */
+public class AfterCommitExecutor implements Executor {
+
+    @Override
+    public void execute(final Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
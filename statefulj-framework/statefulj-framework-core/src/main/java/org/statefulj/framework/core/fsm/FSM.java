@@ -18,14 +18,25 @@
 package org.statefulj.framework.core.fsm;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.context.ApplicationContext;
 import org.statefulj.common.utils.ReflectionUtils;
 import org.statefulj.framework.core.model.Finder;
+import org.statefulj.fsm.EventResult;
 import org.statefulj.fsm.Persister;
 import org.statefulj.fsm.RetryException;
 import org.statefulj.fsm.TooBusyException;
@@ -47,6 +58,22 @@ public class FSM<T, CT> extends org.statefulj.fsm.FSM<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(FSM.class);
 
+    /**
+     * Injection annotations handled by Spring's bean post processors, other than {@link Autowired} and {@link Value} and the annotations they meta-annotate
+     */
+    private static final Set<String> INJECTION_ANNOTATIONS = new HashSet<String>(Arrays.asList("javax.inject.Inject", "javax.annotation.Resource",
+            "javax.persistence.PersistenceContext", "javax.persistence.PersistenceUnit", "javax.ejb.EJB"));
+
+    // Whether a Stateful Entity class has anything to autowire, looked up once per class
+    //
+    private static final ClassValue<Boolean> injectable = new ClassValue<Boolean>() {
+
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return hasInjectionPoints(type);
+        }
+    };
+
     private Finder<T, CT> finder = null;
 
     private Class<T> clazz = null;
@@ -55,6 +82,8 @@ public class FSM<T, CT> extends org.statefulj.fsm.FSM<T> {
 
     private ApplicationContext appContext;
 
+    private boolean autowire = true;
+
     public FSM(String name, Persister<T> persister, int retryAttempts, int retryInterval, Class<T> clazz, Class<? extends Annotation> idType, ApplicationContext applicationContext,
             Finder<T, CT> finder) {
         this(name, persister, retryAttempts, retryInterval, clazz, idType, applicationContext);
@@ -74,6 +103,55 @@ public class FSM<T, CT> extends org.statefulj.fsm.FSM<T> {
         return super.onEvent(stateful, event, parms);
     }
 
+    @Override
+    public CompletableFuture<State<T>> onEventAsync(T stateful, String event, Object... parms) {
+        autowire(stateful);
+        return super.onEventAsync(stateful, event, parms);
+    }
+
+    @Override
+    public List<EventResult<T>> onEvents(Collection<T> statefuls, String event, Object... parms) {
+        for (T stateful : statefuls) {
+            autowire(stateful);
+        }
+        return super.onEvents(statefuls, event, parms);
+    }
+
+    public boolean isAutowire() {
+        return autowire;
+    }
+
+    /**
+     * @param autowire
+     *            false to not autowire the Stateful Entities, when they are @Configurable or have nothing to inject
+     */
+    public void setAutowire(boolean autowire) {
+        this.autowire = autowire;
+    }
+
+    @Override
+    protected boolean requiresStateUpdate(Transition<T> t) {
+        return !((TransitionImpl<T>) t).isAny();
+    }
+
+    @Override
+    protected T beforeAction(T stateful, Transition<T> t, String event, Object... args) {
+        if (((TransitionImpl<T>) t).isReload()) {
+            stateful = reload(stateful, event, args);
+            autowire(stateful);
+        }
+        return stateful;
+    }
+
+    /**
+     * Deferred events are queued by id, so that they are replayed whichever instance of the Stateful Entity leaves the deferred State
+     */
+    @Override
+    protected Object getDeferralKey(T stateful) {
+        Object id = getId(stateful);
+        return (id != null) ? id : super.getDeferralKey(stateful);
+    }
+
     @Override
     protected State<T> transition(T stateful, State<T> current, String event, Transition<T> t, Object... args) throws RetryException {
 
@@ -100,10 +178,33 @@ public class FSM<T, CT> extends org.statefulj.fsm.FSM<T> {
     }
 
     private void autowire(T stateful) {
-        // Autowire instantiated object
-        // TODO: Make this configurable - if using @Configurable - then this isn't necessary
+        // Autowire instantiated object, unless disabled or there is nothing to inject
         //
-        this.appContext.getAutowireCapableBeanFactory().autowireBeanProperties(stateful, AutowireCapableBeanFactory.AUTOWIRE_NO, false);
+        if (this.autowire && stateful != null && injectable.get(stateful.getClass())) {
+            this.appContext.getAutowireCapableBeanFactory().autowireBeanProperties(stateful, AutowireCapableBeanFactory.AUTOWIRE_NO, false);
+        }
+    }
+
+    private static boolean hasInjectionPoints(Class<?> clazz) {
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            if (hasInjectionPoint(current.getDeclaredFields()) || hasInjectionPoint(current.getDeclaredMethods())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasInjectionPoint(AccessibleObject[] members) {
+        for (AccessibleObject member : members) {
+            for (Annotation annotation : member.getAnnotations()) {
+                Class<? extends Annotation> type = annotation.annotationType();
+                if (INJECTION_ANNOTATIONS.contains(type.getName()) || AnnotationUtils.findAnnotation(type, Autowired.class) != null
+                        || AnnotationUtils.findAnnotation(type, Value.class) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private T reload(T stateful, String event, Object... args) {
@@ -0,0 +1,62 @@
+package org.statefulj.framework.core.fsm;
+
+/**
+ * Carries an event through the framework: the context and the arguments from the caller down to the Action method, and the value returned by the Action
+ * method back up to the caller. It is passed as the only argument of the FSM, so the arguments are read from the caller's array instead of being copied at
+ * each layer
+ *
+ * @param <CT>
+ *            The Context Type
+ */
+public class InvocationContext<CT> extends ContextWrapper<CT> {
+
+    private final Object[] args;
+
+    private final int offset;
+
+    private Object returnValue;
+
+    /**
+     * @param context
+     *            The context, may be null
+     * @param args
+     *            The caller's arguments
+     * @param offset
+     *            Position of the first argument of the event in args
+     */
+    public InvocationContext(final CT context, final Object[] args, final int offset) {
+        super(context);
+        this.args = args;
+        this.offset = Math.min(offset, args.length);
+    }
+
+    /**
+     * @return The InvocationContext passed as the only parameter, otherwise one over the parameters, with the context of a leading {@link ContextWrapper}
+     */
+    @SuppressWarnings("unchecked")
+    public static InvocationContext<Object> of(final Object... parms) {
+        if ((parms.length == 1) && (parms[0] instanceof InvocationContext<?>)) {
+            return (InvocationContext<Object>) parms[0];
+        }
+        if ((parms.length > 0) && (parms[0] instanceof ContextWrapper<?>)) {
+            return new InvocationContext<Object>(((ContextWrapper<Object>) parms[0]).getContext(), parms, 1);
+        }
+        return new InvocationContext<Object>(null, parms, 0);
+    }
+
+    public int getArgCount() {
+        return args.length - offset;
+    }
+
+    public Object getArg(final int index) {
+        return args[offset + index];
+    }
+
+    public Object getReturnValue() {
+        return returnValue;
+    }
+
+    public void setReturnValue(final Object returnValue) {
+        this.returnValue = returnValue;
+    }
+}
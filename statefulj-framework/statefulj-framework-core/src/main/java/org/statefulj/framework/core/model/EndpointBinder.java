@@ -4,6 +4,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
 
+import org.statefulj.framework.core.processor.BinderGenerator;
+
 import javassist.CannotCompileException;
 import javassist.NotFoundException;
 
@@ -12,4 +14,15 @@ public interface EndpointBinder {
 
     Class<?> bindEndpoints(String beanName, Class<?> stateControllerClass, Class<?> idType, boolean isDomainEntity, Map<String, Method> eventMapping, ReferenceFactory refFactory)
             throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException;
+
+    /**
+     * Bind the endpoints with the {@link BinderGenerator} of the {@link org.statefulj.framework.core.StatefulFactory}, which supplies the binder classes
+     * generated at build time and writes them out when generating. Binders that don't precompile their classes can leave it to
+     * {@link #bindEndpoints(String, Class, Class, boolean, Map, ReferenceFactory)}
+     */
+    default Class<?> bindEndpoints(final String beanName, final Class<?> stateControllerClass, final Class<?> idType, final boolean isDomainEntity,
+            final Map<String, Method> eventMapping, final ReferenceFactory refFactory, final BinderGenerator generator)
+            throws CannotCompileException, NotFoundException, IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        return bindEndpoints(beanName, stateControllerClass, idType, isDomainEntity, eventMapping, refFactory);
+    }
 }
@@ -1,9 +1,44 @@
 package org.statefulj.framework.core.model;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.statefulj.fsm.EventExecutors;
 import org.statefulj.fsm.TooBusyException;
 
 public interface FSMHarness {
     public Object onEvent(String event, Object id, Object[] parms) throws TooBusyException;
 
     public Object onEvent(String event, Object[] parms) throws TooBusyException, InstantiationException;
+
+    /**
+     * Dispatch the event on the harness' executor, a virtual thread per event when running on Java 21 or later
+     *
+     * @return A future completed with the result of {@link #onEvent(String, Object, Object[])}
+     */
+    public default CompletableFuture<Object> onEventAsync(final String event, final Object id, final Object[] parms) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return onEvent(event, id, parms);
+            } catch (final TooBusyException e) {
+                throw new CompletionException(e);
+            }
+        }, EventExecutors.getDefault());
+    }
+
+    /**
+     * Send the event to a set of Stateful Entities. Those in a State whose transition for the event has no action are moved in bulk by the Persister, without
+     * being loaded; the others go through {@link #onEvent(String, Object, Object[])} one at a time. Harnesses that can't move in bulk send it to each of them
+     *
+     * @return The ids that were moved in bulk
+     */
+    public default List<Object> onEventAll(final String event, final Collection<?> ids, final Object[] parms) throws TooBusyException {
+        for (final Object id : ids) {
+            onEvent(event, id, parms);
+        }
+        return Collections.emptyList();
+    }
 }
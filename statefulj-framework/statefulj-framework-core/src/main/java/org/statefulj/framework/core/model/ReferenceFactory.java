@@ -12,6 +12,8 @@ public interface ReferenceFactory {
 
     String getPersisterId();
 
+    String getCachingPersisterId();
+
     String getFactoryId();
 
     String getStatefulFSMId();
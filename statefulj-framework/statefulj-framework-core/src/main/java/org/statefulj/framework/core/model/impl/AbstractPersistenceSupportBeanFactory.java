@@ -0,0 +1,76 @@
+package org.statefulj.framework.core.model.impl;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.data.annotation.Id;
+import org.statefulj.framework.core.model.PersistenceSupportBeanFactory;
+
+/**
+ * Base of the persistence support that isn't keyed on a repository factory. It has a null key, so it is never picked for a repository and is only selected
+ * with {@link org.statefulj.framework.core.annotations.StatefulController#persistenceSupport()}. The Persister is built from its class and is passed the States,
+ * the State field name, the start State and the Stateful class; its other dependencies are autowired. A Finder is only built if the entity also has a Spring
+ * Data repository, otherwise the finderId must be set on the StatefulController
+ */
+public abstract class AbstractPersistenceSupportBeanFactory implements PersistenceSupportBeanFactory {
+
+    public Class<?> getKey() {
+        return null;
+    }
+
+    public Class<?> getIdType() {
+        return Long.class;
+    }
+
+    public Class<? extends Annotation> getIdAnnotationType() {
+        return Id.class;
+    }
+
+    public BeanDefinition buildFactoryBean(final Class<?> statefulClass) {
+        final BeanDefinition factoryBean = BeanDefinitionBuilder.genericBeanDefinition(FactoryImpl.class).getBeanDefinition();
+        return factoryBean;
+    }
+
+    public BeanDefinition buildFinderBean(final String repoBeanId) {
+        final BeanDefinition finderBean = BeanDefinitionBuilder.genericBeanDefinition(CrudRepositoryFinderImpl.class).getBeanDefinition();
+        final ConstructorArgumentValues args = finderBean.getConstructorArgumentValues();
+        args.addIndexedArgumentValue(0, new RuntimeBeanReference(repoBeanId));
+        return finderBean;
+    }
+
+    public BeanDefinition buildPersisterBean(final Class<?> statefulClass, final String repoBeanId, final BeanDefinition repoBeanDefinitionFactory, final String stateFieldName,
+            final String startStateId, final List<RuntimeBeanReference> stateBeans) {
+        final BeanDefinition persisterBean = BeanDefinitionBuilder.genericBeanDefinition(getPersisterClass()).setAutowireMode(getPersisterAutowireMode())
+                .getBeanDefinition();
+        final ConstructorArgumentValues args = persisterBean.getConstructorArgumentValues();
+        args.addIndexedArgumentValue(0, stateBeans);
+        args.addIndexedArgumentValue(1, stateFieldName);
+        args.addIndexedArgumentValue(2, new RuntimeBeanReference(startStateId));
+        args.addIndexedArgumentValue(3, statefulClass);
+        return persisterBean;
+    }
+
+    public BeanDefinition buildFSMHarnessBean(final Class<?> statefulClass, final String fsmBeanId, final String factoryId, final String finderId, final BeanDefinition repoBeanDefinitionFactory) {
+        final BeanDefinition fsmHarness = BeanDefinitionBuilder.genericBeanDefinition(FSMHarnessImpl.class).getBeanDefinition();
+        final ConstructorArgumentValues args = fsmHarness.getConstructorArgumentValues();
+        args.addIndexedArgumentValue(0, new RuntimeBeanReference(fsmBeanId));
+        args.addIndexedArgumentValue(1, statefulClass);
+        args.addIndexedArgumentValue(2, new RuntimeBeanReference(factoryId));
+        args.addIndexedArgumentValue(3, new RuntimeBeanReference(finderId));
+        return fsmHarness;
+    }
+
+    /**
+     * @return The Persister class, constructed with the States, the State field name, the start State and the Stateful class
+     */
+    protected abstract Class<?> getPersisterClass();
+
+    /**
+     * @return How the other dependencies of the Persister are autowired, one of the AutowireCapableBeanFactory AUTOWIRE constants
+     */
+    protected abstract int getPersisterAutowireMode();
+}
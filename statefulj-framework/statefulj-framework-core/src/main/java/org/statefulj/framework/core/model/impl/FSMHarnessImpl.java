@@ -2,15 +2,29 @@ package org.statefulj.framework.core.model.impl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.statefulj.framework.core.fsm.ContextWrapper;
+import org.statefulj.framework.core.fsm.InvocationContext;
 import org.statefulj.framework.core.model.FSMHarness;
 import org.statefulj.framework.core.model.Factory;
 import org.statefulj.framework.core.model.Finder;
 import org.statefulj.framework.core.model.StatefulFSM;
+import org.statefulj.fsm.BulkPersister;
+import org.statefulj.fsm.EventExecutors;
+import org.statefulj.fsm.Persister;
 import org.statefulj.fsm.TooBusyException;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.StateActionPair;
+import org.statefulj.fsm.model.Transition;
+import org.statefulj.fsm.model.impl.DeterministicTransitionImpl;
 
 public class FSMHarnessImpl<T, CT> implements FSMHarness {
     private static final Logger logger = LoggerFactory.getLogger(FSMHarnessImpl.class);
@@ -21,6 +35,12 @@ public class FSMHarnessImpl<T, CT> implements FSMHarness {
 
     private final Class<T> clazz;
 
+    private Executor executor;
+
+    private List<State<T>> states;
+
+    private Persister<T> persister;
+
     public FSMHarnessImpl(final StatefulFSM<T> fsm, final Class<T> clazz, final Factory<T, CT> factory, final Finder<T, CT> finder) {
         this.fsm = fsm;
         this.clazz = clazz;
@@ -30,10 +50,8 @@ public class FSMHarnessImpl<T, CT> implements FSMHarness {
 
     @SuppressWarnings("unchecked")
     public Object onEvent(final String event, final Object id, final Object[] parms) throws TooBusyException {
-        final ArrayList<Object> parmList = new ArrayList<Object>(Arrays.asList(parms));
-        final CT context = (CT) ((parmList.size() > 0) ? parmList.remove(0) : null);
-        final ContextWrapper<CT> retryParms = new ContextWrapper<CT>(context);
-        parmList.add(0, retryParms);
+        final CT context = (CT) ((parms.length > 0) ? parms[0] : null);
+        final InvocationContext<CT> invocation = new InvocationContext<CT>(context, parms, 1);
 
         T stateful = null;
 
@@ -56,13 +74,89 @@ public class FSMHarnessImpl<T, CT> implements FSMHarness {
             }
         }
 
-        return fsm.onEvent(stateful, event, parmList.toArray());
+        return fsm.onEvent(stateful, event, invocation);
+    }
+
+    public CompletableFuture<Object> onEventAsync(final String event, final Object id, final Object[] parms) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return onEvent(event, id, parms);
+            } catch (final TooBusyException e) {
+                throw new CompletionException(e);
+            }
+        }, getExecutor());
+    }
+
+    public List<Object> onEventAll(final String event, final Collection<?> ids, final Object[] parms) throws TooBusyException {
+        final Set<Object> remaining = new LinkedHashSet<Object>(ids);
+        final List<Object> moved = new ArrayList<Object>();
+
+        if ((states != null) && (persister instanceof BulkPersister)) {
+            for (final State<T> from : states) {
+                final State<T> to = getBulkTarget(from, event);
+                if ((to != null) && !remaining.isEmpty()) {
+                    final List<Object> transitioned = ((BulkPersister<T>) persister).transitionAll(new ArrayList<Object>(remaining), from, to);
+                    FSMHarnessImpl.logger.debug("Moved {} {} from {} to {} in bulk, event={}", transitioned.size(), clazz.getSimpleName(), from.getName(), to.getName(), event);
+                    remaining.removeAll(transitioned);
+                    moved.addAll(transitioned);
+                }
+            }
+        }
+
+        for (final Object id : remaining) {
+            onEvent(event, id, parms);
+        }
+        return moved;
+    }
+
+    public Executor getExecutor() {
+        return (executor != null) ? executor : EventExecutors.getDefault();
+    }
+
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    public List<State<T>> getStates() {
+        return states;
+    }
+
+    /**
+     * The States of the FSM, required to send events in bulk
+     */
+    public void setStates(final List<State<T>> states) {
+        this.states = states;
+    }
+
+    public Persister<T> getPersister() {
+        return persister;
+    }
+
+    public void setPersister(final Persister<T> persister) {
+        this.persister = persister;
     }
 
     public Object onEvent(final String event, final Object[] parms) throws TooBusyException {
-        final ArrayList<Object> parmList = new ArrayList<Object>(Arrays.asList(parms));
-        final Object id = parmList.remove(0);
-        return onEvent(event, id, parmList.toArray());
+        return onEvent(event, parms[0], Arrays.copyOfRange(parms, 1, parms.length));
+    }
+
+    /**
+     * @return The State the event moves the Stateful Entity to, if the transition can be applied without loading it: deterministic, without an action, out
+     *         of a non blocking State and into another State. Null otherwise
+     */
+    private State<T> getBulkTarget(final State<T> from, final String event) {
+        if (from.isBlocking()) {
+            return null;
+        }
+        final Transition<T> transition = from.getTransition(event);
+        if (!(transition instanceof DeterministicTransitionImpl)) {
+            return null;
+        }
+        final StateActionPair<T> pair = ((DeterministicTransitionImpl<T>) transition).getStateActionPair(null);
+        if ((pair.getAction() != null) || from.equals(pair.getState())) {
+            return null;
+        }
+        return pair.getState();
     }
 
     private T findStateful(final String event, final Object id, final CT context) {
@@ -30,6 +30,10 @@ public class ReferenceFactoryImpl implements ReferenceFactory {
         return Introspector.decapitalize(ctrl + ".persister");
     }
 
+    public String getCachingPersisterId() {
+        return Introspector.decapitalize(ctrl + ".cachingPersister");
+    }
+
     public String getFactoryId() {
         return Introspector.decapitalize(ctrl + ".factory");
     }
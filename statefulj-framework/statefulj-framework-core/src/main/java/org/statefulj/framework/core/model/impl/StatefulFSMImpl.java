@@ -17,12 +17,9 @@
  */
 package org.statefulj.framework.core.model.impl;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-
-import org.apache.commons.lang3.mutable.MutableObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.statefulj.framework.core.fsm.InvocationContext;
 import org.statefulj.framework.core.model.Factory;
 import org.statefulj.framework.core.model.StatefulFSM;
 import org.statefulj.fsm.FSM;
@@ -54,20 +51,15 @@ public class StatefulFSMImpl<T> implements StatefulFSM<T> {
     }
 
     public Object onEvent(final T stateful, final String event, final Object... parms) throws TooBusyException {
-        final ArrayList<Object> parmList = new ArrayList<Object>(Arrays.asList(parms));
-
-        // Create a Mutable Object and add it to the Parameter List - it will be used
-        // to return the returned value from the Controller as the FSM returns the State
+        // The InvocationContext carries the parameters down to the Controller, and
+        // the returned value back up, as the FSM returns the State
         //
-        final MutableObject<T> returnValue = new MutableObject<T>();
-        final ArrayList<Object> invokeParmlist = new ArrayList<Object>(parms.length + 1);
-        invokeParmlist.add(returnValue);
-        invokeParmlist.addAll(parmList);
+        final InvocationContext<Object> invocation = InvocationContext.of(parms);
 
         // Call the FSM
         //
-        fsm.onEvent(stateful, event, invokeParmlist.toArray());
-        return returnValue.getValue();
+        fsm.onEvent(stateful, event, invocation);
+        return invocation.getReturnValue();
     }
 
 }
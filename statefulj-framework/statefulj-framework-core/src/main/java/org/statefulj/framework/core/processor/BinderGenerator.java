@@ -0,0 +1,206 @@
+package org.statefulj.framework.core.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.ConfigurationClassPostProcessor;
+import org.springframework.util.ClassUtils;
+import org.statefulj.framework.core.StatefulFactory;
+
+import javassist.CannotCompileException;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.NotFoundException;
+
+/**
+ * Generates the binder classes of the {@link org.statefulj.framework.core.model.EndpointBinder}s at build time, so they are loaded as regular classes instead
+ * of being generated at startup. Run it after compiling, e.g. with the exec-maven-plugin in the process-classes phase:
+ *
+ * <pre>
+ * java org.statefulj.framework.core.processor.BinderGenerator target/classes applicationContext.xml com.acme.AppConfig
+ * </pre>
+ *
+ * The bean definitions are loaded from the Spring XML files and @Configuration classes, then the {@link StatefulFactory} beans (or a default one) write the
+ * binder classes to the output directory. The binder classes reference the beans by id, so the bean ids must be the same at runtime.
+ * <p>
+ * At runtime, binders use a precompiled binder class if its fingerprint, a hash of the Stateful Controller's bean name, id type and event mapping, is still
+ * current; otherwise the binder class is generated again
+ */
+public class BinderGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinderGenerator.class);
+
+    /**
+     * Name of the static field holding the fingerprint of a generated binder class
+     */
+    public static final String FINGERPRINT_FIELD = "$_fingerprint";
+
+    private final File outputDirectory;
+
+    private final ClassLoader classLoader;
+
+    /**
+     * @param outputDirectory
+     *            The directory to write the binder classes to, null to only load them
+     * @param classLoader
+     *            The ClassLoader to look up the precompiled binder classes with, and to load the generated ones in
+     */
+    public BinderGenerator(final File outputDirectory, final ClassLoader classLoader) {
+        this.outputDirectory = outputDirectory;
+        this.classLoader = classLoader;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BinderGenerator <output directory> <Spring XML file or @Configuration class>...");
+            System.exit(1);
+        }
+        final String[] configs = new String[args.length - 1];
+        System.arraycopy(args, 1, configs, 0, configs.length);
+        generate(new File(args[0]), configs);
+    }
+
+    /**
+     * @param outputDirectory
+     *            The directory to write the binder classes to
+     * @param configs
+     *            Spring XML files, ending with .xml, and @Configuration class names
+     */
+    public static void generate(final File outputDirectory, final String... configs) throws ClassNotFoundException {
+        final DefaultListableBeanFactory registry = new DefaultListableBeanFactory();
+        final XmlBeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(registry);
+        final AnnotatedBeanDefinitionReader annotatedReader = new AnnotatedBeanDefinitionReader(registry);
+        for (final String config : configs) {
+            if (config.endsWith(".xml")) {
+                xmlReader.loadBeanDefinitions(config);
+            } else {
+                annotatedReader.register(ClassUtils.forName(config, registry.getBeanClassLoader()));
+            }
+        }
+        new ConfigurationClassPostProcessor().postProcessBeanDefinitionRegistry(registry);
+
+        Map<String, StatefulFactory> factories = registry.getBeansOfType(StatefulFactory.class, false, false);
+        if (factories.isEmpty()) {
+            final StatefulFactory factory = new StatefulFactory();
+            factory.setBeanClassLoader(registry.getBeanClassLoader());
+            factories = Collections.singletonMap("statefulFactory", factory);
+        }
+        for (final StatefulFactory factory : factories.values()) {
+            factory.setBinderOutputDirectory(outputDirectory);
+            factory.postProcessBeanDefinitionRegistry(registry);
+        }
+        BinderGenerator.logger.info("Generated the binder classes into {}", outputDirectory);
+    }
+
+    /**
+     * @return A hash of everything the binder class of the Stateful Controller is generated from
+     */
+    public static String fingerprint(final Class<?> binderType, final String beanName, final Class<?> controllerClass, final Class<?> idType, final boolean isDomainEntity,
+            final Map<String, Method> eventMapping, final String fsmHarnessId) {
+        final StringBuilder source = new StringBuilder();
+        source.append(binderType.getName()).append('|').append(beanName).append('|').append(controllerClass.getName()).append('|');
+        source.append((idType == null) ? "" : idType.getName()).append('|').append(isDomainEntity).append('|').append(fsmHarnessId);
+        for (final Map.Entry<String, Method> entry : new TreeMap<>(eventMapping).entrySet()) {
+            final Method method = entry.getValue();
+            source.append('|').append(entry.getKey()).append('=');
+            if (method != null) {
+                source.append(method.toGenericString());
+                for (final Annotation[] annotations : method.getParameterAnnotations()) {
+                    source.append(';');
+                    for (final Annotation annotation : annotations) {
+                        source.append(annotation.annotationType().getName()).append(',');
+                    }
+                }
+            }
+        }
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder();
+            for (final byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param binderClassName
+     *            Name of the binder class
+     * @param fingerprint
+     *            The fingerprint of the binder class, see {@link #fingerprint}
+     * @return The precompiled binder class, null if there is none, it's stale or binder classes are being generated
+     */
+    public Class<?> findPrecompiled(final String binderClassName, final String fingerprint) {
+        if (outputDirectory != null) {
+            return null;
+        }
+        final Class<?> binderClass = load(binderClassName);
+        if (binderClass == null) {
+            return null;
+        }
+        try {
+            if (fingerprint.equals(binderClass.getField(FINGERPRINT_FIELD).get(null))) {
+                BinderGenerator.logger.debug("Using precompiled binder class {}", binderClassName);
+                return binderClass;
+            }
+        } catch (final NoSuchFieldException e) {
+            // Generated before binder classes had a fingerprint
+            //
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        BinderGenerator.logger.info("Precompiled binder class {} is stale, generating it again", binderClassName);
+        return null;
+    }
+
+    /**
+     * Stamp the generated binder class with its fingerprint and load it. When generating at build time write it to the output directory first. It is loaded in
+     * a child ClassLoader when a binder class of the same name, precompiled or stale, is already visible
+     */
+    public Class<?> define(final CtClass binderClass, final String fingerprint) throws CannotCompileException {
+        try {
+            final CtField field = new CtField(binderClass.getClassPool().get(String.class.getName()), FINGERPRINT_FIELD, binderClass);
+            field.setModifiers(Modifier.PUBLIC | Modifier.STATIC | Modifier.FINAL);
+            binderClass.addField(field, CtField.Initializer.constant(fingerprint));
+        } catch (final NotFoundException e) {
+            throw new CannotCompileException(e);
+        }
+        if (outputDirectory != null) {
+            try {
+                binderClass.writeFile(outputDirectory.getAbsolutePath());
+            } catch (final IOException e) {
+                throw new CannotCompileException(e);
+            }
+            BinderGenerator.logger.debug("Wrote binder class {} to {}", binderClass.getName(), outputDirectory);
+        }
+        if ((outputDirectory == null) && (load(binderClass.getName()) == null)) {
+            return binderClass.toClass(classLoader, null);
+        }
+        return binderClass.toClass(new ClassLoader(classLoader) {
+        }, null);
+    }
+
+    private Class<?> load(final String binderClassName) {
+        try {
+            return Class.forName(binderClassName, false, classLoader);
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.statefulj.framework.core.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.statefulj.framework.core.model.EndpointBinder;
+import org.statefulj.framework.core.model.PersistenceSupportBeanFactory;
+
+/**
+ * Reads the index of the framework extensions written by the {@link StatefulIndexProcessor}. The index of a type is a
+ * <code>META-INF/services/&lt;type&gt;</code> file listing its implementations, one class name per line
+ */
+public class StatefulIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatefulIndex.class);
+
+    public static final String LOCATION = "META-INF/services/";
+
+    /**
+     * The types whose implementations are indexed
+     */
+    public static final List<Class<?>> INDEXED_TYPES = Collections.unmodifiableList(Arrays.<Class<?>>asList(EndpointBinder.class, PersistenceSupportBeanFactory.class));
+
+    private StatefulIndex() {
+    }
+
+    /**
+     * @param type
+     *            The indexed type
+     * @param classLoader
+     *            The ClassLoader to read the index and load the classes with
+     * @param packages
+     *            Only return the implementations in these packages
+     * @return The concrete implementations of the type, null if there is no index for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Set<Class<? extends T>> load(final Class<T> type, final ClassLoader classLoader, final String... packages) throws IOException {
+        final Enumeration<URL> resources = classLoader.getResources(LOCATION + type.getName());
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+        final Set<Class<? extends T>> implementations = new LinkedHashSet<>();
+        while (resources.hasMoreElements()) {
+            for (final String className : read(resources.nextElement())) {
+                if (!inPackages(className, packages)) {
+                    continue;
+                }
+                try {
+                    final Class<?> clazz = Class.forName(className, false, classLoader);
+                    if (type.isAssignableFrom(clazz) && !Modifier.isAbstract(clazz.getModifiers())) {
+                        implementations.add((Class<? extends T>) clazz);
+                    }
+                } catch (final ClassNotFoundException e) {
+                    StatefulIndex.logger.warn("Skipping {}, listed in the index of {}, it can't be loaded", className, type.getName());
+                }
+            }
+        }
+        return implementations;
+    }
+
+    /**
+     * @param classLoader
+     *            The ClassLoader to read the index with
+     * @param packages
+     *            The packages to look for
+     * @return The packages without any indexed implementation, their classes were likely compiled without the {@link StatefulIndexProcessor}
+     */
+    public static Set<String> unindexedPackages(final ClassLoader classLoader, final String... packages) throws IOException {
+        final Set<String> unindexed = new LinkedHashSet<>(Arrays.asList(packages));
+        for (final Class<?> type : INDEXED_TYPES) {
+            final Enumeration<URL> resources = classLoader.getResources(LOCATION + type.getName());
+            while (resources.hasMoreElements() && !unindexed.isEmpty()) {
+                for (final String className : read(resources.nextElement())) {
+                    unindexed.removeIf(pkg -> inPackages(className, pkg));
+                }
+            }
+        }
+        return unindexed;
+    }
+
+    static Set<String> read(final URL resource) throws IOException {
+        final Set<String> classNames = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int comment = line.indexOf('#');
+                final String className = ((comment < 0) ? line : line.substring(0, comment)).trim();
+                if (!className.isEmpty()) {
+                    classNames.add(className);
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private static boolean inPackages(final String className, final String... packages) {
+        for (final String pkg : packages) {
+            if (className.startsWith(pkg + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+package org.statefulj.framework.core.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes the {@link StatefulIndex} of the {@link org.statefulj.framework.core.model.EndpointBinder} and
+ * {@link org.statefulj.framework.core.model.PersistenceSupportBeanFactory} implementations being compiled, so the {@link org.statefulj.framework.core.StatefulFactory}
+ * doesn't have to scan the classpath for them. It is registered as a service, so it runs when compiling against the framework, unless annotation processing is
+ * disabled
+ */
+@SupportedAnnotationTypes("*")
+public class StatefulIndexProcessor extends AbstractProcessor {
+
+    private final Map<String, Set<String>> index = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (final Element element : roundEnv.getRootElements()) {
+                indexType(element);
+            }
+        }
+
+        // Don't claim the annotations, other processors may need them
+        //
+        return false;
+    }
+
+    private void indexType(final Element element) {
+        if ((element.getKind() != ElementKind.CLASS) && (element.getKind() != ElementKind.INTERFACE)) {
+            return;
+        }
+        final TypeElement type = (TypeElement) element;
+        if ((type.getKind() == ElementKind.CLASS) && type.getModifiers().contains(Modifier.PUBLIC) && !type.getModifiers().contains(Modifier.ABSTRACT)) {
+            for (final Class<?> indexed : StatefulIndex.INDEXED_TYPES) {
+                final TypeElement indexedType = processingEnv.getElementUtils().getTypeElement(indexed.getName());
+                final TypeMirror erasure = processingEnv.getTypeUtils().erasure(type.asType());
+                if ((indexedType != null) && processingEnv.getTypeUtils().isAssignable(erasure, processingEnv.getTypeUtils().erasure(indexedType.asType()))) {
+                    entries(indexed.getName()).add(processingEnv.getElementUtils().getBinaryName(type).toString());
+                }
+            }
+        }
+
+        // Nested classes
+        //
+        for (final Element enclosed : type.getEnclosedElements()) {
+            if (enclosed.getModifiers().contains(Modifier.STATIC) || (enclosed.getKind() == ElementKind.INTERFACE)) {
+                indexType(enclosed);
+            }
+        }
+    }
+
+    private Set<String> entries(final String type) {
+        Set<String> entries = index.get(type);
+        if (entries == null) {
+            entries = new TreeSet<>();
+            index.put(type, entries);
+        }
+        return entries;
+    }
+
+    private void writeIndex() {
+        for (final Entry<String, Set<String>> entry : index.entrySet()) {
+            final String location = StatefulIndex.LOCATION + entry.getKey();
+            final Set<String> entries = entry.getValue();
+
+            // Keep the entries of the previous compilation, for incremental builds
+            //
+            try {
+                final FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", location);
+                entries.addAll(StatefulIndex.read(existing.toUri().toURL()));
+            } catch (final IOException | IllegalArgumentException e) {
+                // No previous index
+                //
+            }
+
+            try {
+                final FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", location);
+                try (Writer writer = resource.openWriter()) {
+                    for (final String className : entries) {
+                        writer.write(className);
+                        writer.write('\n');
+                    }
+                }
+            } catch (final IOException e) {
+                processingEnv.getMessager().printMessage(Kind.ERROR, "Unable to write " + location + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,23 +1,36 @@
 package org.statefulj.framework.core;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import org.alternative.AltTestBinder;
 import org.alternative.AltTestRepositoryFactoryBeanSupport;
 import org.alternative.AltTestUserController;
 import org.alternative.AltTestUserRepository;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.statefulj.framework.core.controllers.CachingController;
 import org.statefulj.framework.core.controllers.FailedMemoryController;
 import org.statefulj.framework.core.controllers.MemoryController;
 import org.statefulj.framework.core.controllers.NoRetryController;
+import org.statefulj.framework.core.controllers.RetryPolicyController;
+import org.statefulj.framework.core.controllers.UnwiredController;
 import org.statefulj.framework.core.controllers.UserController;
 import org.statefulj.framework.core.dao.UserRepository;
 import org.statefulj.framework.core.mocks.MockBeanDefinitionRegistryImpl;
+import org.statefulj.framework.core.mocks.MockBinder;
 import org.statefulj.framework.core.mocks.MockProxy;
 import org.statefulj.framework.core.mocks.MockRepositoryFactoryBeanSupport;
+import org.statefulj.framework.core.model.EndpointBinder;
 import org.statefulj.framework.core.model.ReferenceFactory;
 import org.statefulj.framework.core.model.impl.ReferenceFactoryImpl;
+import org.statefulj.framework.core.processor.StatefulIndex;
+import org.statefulj.fsm.CachingPersister;
 import org.statefulj.persistence.memory.MemoryPersisterImpl;
 
 public class StatefulFactoryTest {
@@ -89,6 +102,32 @@ public class StatefulFactoryTest {
         Assert.assertEquals(1, fsm.getConstructorArgumentValues().getArgumentValue(3, Integer.class).getValue());
     }
 
+    @Test
+    public void testFSMConstructionWithRetryPolicy() throws ClassNotFoundException {
+        final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
+
+        final BeanDefinition userRepo = BeanDefinitionBuilder.genericBeanDefinition(MockRepositoryFactoryBeanSupport.class).getBeanDefinition();
+        userRepo.getPropertyValues().add("repositoryInterface", UserRepository.class.getName());
+
+        registry.registerBeanDefinition("userRepo", userRepo);
+
+        final BeanDefinition retryPolicyController = BeanDefinitionBuilder.genericBeanDefinition(RetryPolicyController.class).getBeanDefinition();
+
+        registry.registerBeanDefinition("retryPolicyController", retryPolicyController);
+
+        final ReferenceFactory refFactory = new ReferenceFactoryImpl("retryPolicyController");
+
+        final StatefulFactory factory = new StatefulFactory();
+
+        factory.postProcessBeanDefinitionRegistry(registry);
+
+        final BeanDefinition fsm = registry.getBeanDefinition(refFactory.getFSMId());
+        Assert.assertNotNull(fsm);
+        final Object retryPolicy = fsm.getPropertyValues().getPropertyValue("retryPolicy").getValue();
+        Assert.assertTrue(retryPolicy instanceof RuntimeBeanReference);
+        Assert.assertEquals("backoffPolicy", ((RuntimeBeanReference) retryPolicy).getBeanName());
+    }
+
     @Test
     public void testAlternativePackages() throws ClassNotFoundException {
         final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
@@ -125,6 +164,37 @@ public class StatefulFactoryTest {
         Assert.assertNotNull(persister);
     }
 
+    @Test
+    public void testFSMConstructionWithStateCache() throws ClassNotFoundException {
+        final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
+
+        final BeanDefinition userRepo = BeanDefinitionBuilder.genericBeanDefinition(MockRepositoryFactoryBeanSupport.class).getBeanDefinition();
+        userRepo.getPropertyValues().add("repositoryInterface", UserRepository.class.getName());
+
+        registry.registerBeanDefinition("userRepo", userRepo);
+
+        final BeanDefinition cachingController = BeanDefinitionBuilder.genericBeanDefinition(CachingController.class).getBeanDefinition();
+
+        registry.registerBeanDefinition("cachingController", cachingController);
+
+        final ReferenceFactory refFactory = new ReferenceFactoryImpl("cachingController");
+
+        final StatefulFactory factory = new StatefulFactory();
+
+        factory.postProcessBeanDefinitionRegistry(registry);
+
+        final BeanDefinition cachingPersister = registry.getBeanDefinition(refFactory.getCachingPersisterId());
+        Assert.assertNotNull(cachingPersister);
+        Assert.assertEquals(CachingPersister.class.getName(), cachingPersister.getBeanClassName());
+        Assert.assertEquals("create", cachingPersister.getFactoryMethodName());
+        Assert.assertNotNull(cachingPersister.getPropertyValues().getPropertyValue("afterCommit"));
+        Assert.assertEquals("cachingStore", ((RuntimeBeanReference) cachingPersister.getConstructorArgumentValues().getIndexedArgumentValues().get(0).getValue()).getBeanName());
+        Assert.assertEquals(100, cachingPersister.getConstructorArgumentValues().getIndexedArgumentValues().get(1).getValue());
+
+        final BeanDefinition fsm = registry.getBeanDefinition(refFactory.getFSMId());
+        Assert.assertEquals(refFactory.getCachingPersisterId(), ((RuntimeBeanReference) fsm.getConstructorArgumentValues().getIndexedArgumentValues().get(1).getValue()).getBeanName());
+    }
+
     @Test
     public void testMemoryPersistor() throws ClassNotFoundException {
         final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
@@ -149,6 +219,24 @@ public class StatefulFactoryTest {
         Assert.assertNull(harness);
     }
 
+    @Test
+    public void testAutowireDisabled() throws ClassNotFoundException {
+        final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
+
+        final BeanDefinition unwiredController = BeanDefinitionBuilder.genericBeanDefinition(UnwiredController.class).getBeanDefinition();
+
+        registry.registerBeanDefinition("unwiredController", unwiredController);
+
+        final ReferenceFactory refFactory = new ReferenceFactoryImpl("unwiredController");
+        final StatefulFactory factory = new StatefulFactory();
+
+        factory.postProcessBeanDefinitionRegistry(registry);
+
+        final BeanDefinition fsm = registry.getBeanDefinition(refFactory.getFSMId());
+        Assert.assertNotNull(fsm);
+        Assert.assertEquals(false, fsm.getPropertyValues().getPropertyValue("autowire").getValue());
+    }
+
     @Test(expected = RuntimeException.class)
     public void testMemoryFailurePersistor() throws ClassNotFoundException {
         final BeanDefinitionRegistry registry = new MockBeanDefinitionRegistryImpl();
@@ -158,4 +246,25 @@ public class StatefulFactoryTest {
         final StatefulFactory factory = new StatefulFactory();
         factory.postProcessBeanDefinitionRegistry(registry);
     }
+
+    @Test
+    public void testIndex() throws IOException {
+
+        // The test classes are compiled with the StatefulIndexProcessor
+        //
+        final Set<Class<? extends EndpointBinder>> binders = StatefulIndex.load(EndpointBinder.class, getClass().getClassLoader(), "org.statefulj");
+        Assert.assertNotNull(binders);
+        Assert.assertTrue(binders.contains(MockBinder.class));
+        Assert.assertFalse(binders.contains(AltTestBinder.class));
+
+        final Set<Class<? extends EndpointBinder>> altBinders = StatefulIndex.load(EndpointBinder.class, getClass().getClassLoader(), "org.alternative");
+        Assert.assertEquals(1, altBinders.size());
+        Assert.assertTrue(altBinders.contains(AltTestBinder.class));
+    }
+
+    @Test
+    public void testUnindexedPackages() throws IOException {
+        final Set<String> unindexed = StatefulIndex.unindexedPackages(getClass().getClassLoader(), "org.statefulj", "org.alternative", "org.unindexed");
+        Assert.assertEquals(Collections.singleton("org.unindexed"), unindexed);
+    }
 }
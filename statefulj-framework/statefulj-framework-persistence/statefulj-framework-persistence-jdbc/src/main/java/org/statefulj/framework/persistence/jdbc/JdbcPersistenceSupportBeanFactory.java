@@ -0,0 +1,23 @@
+package org.statefulj.framework.persistence.jdbc;
+
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.statefulj.framework.core.model.impl.AbstractPersistenceSupportBeanFactory;
+import org.statefulj.persistence.jdbc.JdbcPersister;
+
+/**
+ * Builds a {@link JdbcPersister} for the Stateful Entity. There is no repository factory to key this support on, so it is selected with
+ * {@link org.statefulj.framework.core.annotations.StatefulController#persistenceSupport()}. The DataSource, and the PlatformTransactionManager if there is a
+ * single one, are autowired into the constructor
+ */
+public class JdbcPersistenceSupportBeanFactory extends AbstractPersistenceSupportBeanFactory {
+
+    @Override
+    protected Class<?> getPersisterClass() {
+        return JdbcPersister.class;
+    }
+
+    @Override
+    protected int getPersisterAutowireMode() {
+        return AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR;
+    }
+}
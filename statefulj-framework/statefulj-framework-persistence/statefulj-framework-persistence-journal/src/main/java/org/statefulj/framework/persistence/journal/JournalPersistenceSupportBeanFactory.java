@@ -0,0 +1,23 @@
+package org.statefulj.framework.persistence.journal;
+
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.statefulj.framework.core.model.impl.AbstractPersistenceSupportBeanFactory;
+import org.statefulj.persistence.journal.JournalPersister;
+
+/**
+ * Builds a {@link JournalPersister} for the Stateful Entity, selected with
+ * {@link org.statefulj.framework.core.annotations.StatefulController#persistenceSupport()}. The {@link org.statefulj.persistence.journal.Journal} is autowired
+ * by type, so the application context must define exactly one
+ */
+public class JournalPersistenceSupportBeanFactory extends AbstractPersistenceSupportBeanFactory {
+
+    @Override
+    protected Class<?> getPersisterClass() {
+        return JournalPersister.class;
+    }
+
+    @Override
+    protected int getPersisterAutowireMode() {
+        return AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE;
+    }
+}
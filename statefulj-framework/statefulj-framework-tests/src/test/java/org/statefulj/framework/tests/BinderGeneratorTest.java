@@ -0,0 +1,65 @@
+package org.statefulj.framework.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.context.support.GenericXmlApplicationContext;
+import org.statefulj.framework.core.model.ReferenceFactory;
+import org.statefulj.framework.core.model.impl.ReferenceFactoryImpl;
+import org.statefulj.framework.core.processor.BinderGenerator;
+import org.statefulj.framework.tests.controllers.UserController;
+import org.statefulj.framework.tests.model.User;
+import org.statefulj.framework.tests.utils.ReflectionUtils;
+
+public class BinderGeneratorTest {
+
+    @Test
+    public void testGenerateBinders() throws IOException, ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
+        final File output = Files.createTempDirectory("statefulj-binders").toFile();
+
+        BinderGenerator.generate(output, "applicationContext-StatefulControllerTests.xml");
+
+        final String path = UserController.class.getName().replace('.', File.separatorChar);
+        Assert.assertTrue(new File(output, path + "MVCBinder.class").isFile());
+        Assert.assertTrue(new File(output, path + "JerseyBinder.class").isFile());
+        Assert.assertTrue(new File(output, path + "CamelBinder.class").isFile());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { output.toURI().toURL() }, getClass().getClassLoader())) {
+
+            // Binder classes that weren't generated, or are stale, are built at startup
+            //
+            final BinderGenerator generator = new BinderGenerator(null, classLoader);
+            Assert.assertNull(generator.findPrecompiled(UserController.class.getName() + "Unknown", "fingerprint"));
+            Assert.assertNull(generator.findPrecompiled(UserController.class.getName() + "MVCBinder", "stale"));
+
+            // Start the application with the precompiled binder classes
+            //
+            final GenericXmlApplicationContext appContext = new GenericXmlApplicationContext();
+            try {
+                appContext.setClassLoader(classLoader);
+                appContext.load("classpath:applicationContext-StatefulControllerTests.xml");
+                appContext.refresh();
+
+                final ReferenceFactory refFactory = new ReferenceFactoryImpl("userController");
+                final Object mvcBinder = appContext.getBean(refFactory.getBinderId("springmvc"));
+                Assert.assertSame(classLoader, mvcBinder.getClass().getClassLoader());
+                Assert.assertSame(classLoader, appContext.getBean(refFactory.getBinderId("camel")).getClass().getClassLoader());
+
+                final User user = ReflectionUtils.invoke(mvcBinder, "$_get_first", User.class, Mockito.mock(HttpServletRequest.class));
+                Assert.assertNotNull(user);
+                Assert.assertEquals(User.TWO_STATE, user.getState());
+            } finally {
+                appContext.close();
+            }
+        }
+    }
+}
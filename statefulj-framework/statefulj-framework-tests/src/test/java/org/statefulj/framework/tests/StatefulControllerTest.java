@@ -1,15 +1,20 @@
 package org.statefulj.framework.tests;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
@@ -22,6 +27,8 @@ import org.statefulj.framework.core.model.impl.ReferenceFactoryImpl;
 import org.statefulj.framework.tests.clients.FSMClient1;
 import org.statefulj.framework.tests.clients.FSMClient2;
 import org.statefulj.framework.tests.dao.UserRepository;
+import org.statefulj.framework.tests.model.JdbcObject;
+import org.statefulj.framework.tests.model.JournalObject;
 import org.statefulj.framework.tests.model.MemoryObject;
 import org.statefulj.framework.tests.model.User;
 import org.statefulj.framework.tests.utils.ReflectionUtils;
@@ -29,6 +36,7 @@ import org.statefulj.fsm.Persister;
 import org.statefulj.fsm.StaleStateException;
 import org.statefulj.fsm.TooBusyException;
 import org.statefulj.fsm.model.State;
+import org.statefulj.persistence.journal.Journal;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration({ "/applicationContext-StatefulControllerTests.xml" })
@@ -57,6 +65,18 @@ public class StatefulControllerTest {
     @FSM
     StatefulFSM<MemoryObject> memoryFSM;
 
+    @FSM
+    StatefulFSM<JdbcObject> jdbcFSM;
+
+    @FSM
+    StatefulFSM<JournalObject> journalFSM;
+
+    @Resource
+    DataSource dataSource;
+
+    @Resource
+    Journal journal;
+
     @Resource
     FSMClient1 fsmClient1;
 
@@ -83,6 +103,28 @@ public class StatefulControllerTest {
         Assert.assertEquals(MemoryObject.TWO_STATE, memObject.getState());
     }
 
+    @Test
+    public void testJdbcController() throws TooBusyException {
+        final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE JdbcObject (id BIGINT PRIMARY KEY, state VARCHAR(32))");
+        jdbc.update("INSERT INTO JdbcObject (id, state) VALUES (1, NULL)");
+
+        JdbcObject jdbcObject = new JdbcObject(1L);
+        jdbcObject = (JdbcObject) jdbcFSM.onEvent(jdbcObject, "one");
+
+        Assert.assertEquals(JdbcObject.TWO_STATE, jdbcObject.getState());
+        Assert.assertEquals(JdbcObject.TWO_STATE, jdbc.queryForObject("SELECT state FROM JdbcObject WHERE id = 1", String.class));
+    }
+
+    @Test
+    public void testJournalController() throws TooBusyException {
+        JournalObject journalObject = new JournalObject(1L);
+        journalObject = (JournalObject) journalFSM.onEvent(journalObject, "one");
+
+        Assert.assertEquals(JournalObject.TWO_STATE, journalObject.getState());
+        Assert.assertEquals(JournalObject.TWO_STATE, journal.get(JournalObject.class.getName() + ":1"));
+    }
+
     @Test(expected = RuntimeException.class)
     public void testFailedReloadForInMemoryController() throws TooBusyException {
         final MemoryObject memObject = new MemoryObject();
@@ -90,7 +132,7 @@ public class StatefulControllerTest {
     }
 
     @Test
-    public void testStateTransitions() throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, TooBusyException {
+    public void testStateTransitions() throws NoSuchMethodException, SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException, TooBusyException, InterruptedException, ExecutionException {
         Assert.assertNotNull(userFSM);
 
         final ReferenceFactory refFactory = new ReferenceFactoryImpl("userController");
@@ -134,6 +176,10 @@ public class StatefulControllerTest {
         user = userRepo.findOne(user.getId());
         Assert.assertEquals(User.FIVE_STATE, user.getState());
 
+        userFSMHarness.onEventAsync("/{id}/four", user.getId(), new Object[] { context }).get();
+        user = userRepo.findOne(user.getId());
+        Assert.assertEquals(User.FOUR_STATE, user.getState());
+
         Assert.assertEquals(mvcBinder.getClass().getMethod("$_handleError", Exception.class),
                 org.statefulj.common.utils.ReflectionUtils.getFirstAnnotatedMethod(mvcBinder.getClass(), ExceptionHandler.class));
 
@@ -149,6 +195,20 @@ public class StatefulControllerTest {
         Assert.assertNotNull(retUser);
     }
 
+    @Test
+    public void testBulkEvent() throws TooBusyException {
+        final User one = userRepo.save(new User());
+        final User two = userRepo.save(new User());
+        userFSMHarness.onEvent("five", two.getId(), new Object[] {});
+
+        // The ONE_STATE->FIVE_STATE noop is applied without loading the User, FIVE_STATE->FIVE_STATE doesn't move it and goes through the FSM
+        //
+        final List<Object> moved = userFSMHarness.onEventAll("five", Arrays.asList(one.getId(), two.getId()), new Object[] {});
+        Assert.assertEquals(Arrays.asList(one.getId()), moved);
+        Assert.assertEquals(User.FIVE_STATE, userRepo.findOne(one.getId()).getState());
+        Assert.assertEquals(User.FIVE_STATE, userRepo.findOne(two.getId()).getState());
+    }
+
     @Test
     public void testOverloadedMethod() throws TooBusyException {
         Assert.assertNotNull(overloadFSM);
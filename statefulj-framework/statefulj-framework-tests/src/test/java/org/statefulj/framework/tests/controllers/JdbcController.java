@@ -0,0 +1,17 @@
+package org.statefulj.framework.tests.controllers;
+
+import static org.statefulj.framework.tests.model.JdbcObject.ONE_STATE;
+import static org.statefulj.framework.tests.model.JdbcObject.TWO_STATE;
+
+import org.statefulj.framework.core.annotations.StatefulController;
+import org.statefulj.framework.core.annotations.Transition;
+import org.statefulj.framework.persistence.jdbc.JdbcPersistenceSupportBeanFactory;
+import org.statefulj.framework.tests.model.JdbcObject;
+
+@StatefulController(clazz = JdbcObject.class, startState = ONE_STATE, persistenceSupport = JdbcPersistenceSupportBeanFactory.class)
+public class JdbcController {
+    @Transition(from = ONE_STATE, event = "one", to = TWO_STATE)
+    public JdbcObject oneToTwo(final JdbcObject obj, final String event) {
+        return obj;
+    }
+}
@@ -0,0 +1,17 @@
+package org.statefulj.framework.tests.controllers;
+
+import static org.statefulj.framework.tests.model.JournalObject.ONE_STATE;
+import static org.statefulj.framework.tests.model.JournalObject.TWO_STATE;
+
+import org.statefulj.framework.core.annotations.StatefulController;
+import org.statefulj.framework.core.annotations.Transition;
+import org.statefulj.framework.persistence.journal.JournalPersistenceSupportBeanFactory;
+import org.statefulj.framework.tests.model.JournalObject;
+
+@StatefulController(clazz = JournalObject.class, startState = ONE_STATE, persistenceSupport = JournalPersistenceSupportBeanFactory.class)
+public class JournalController {
+    @Transition(from = ONE_STATE, event = "one", to = TWO_STATE)
+    public JournalObject oneToTwo(final JournalObject obj, final String event) {
+        return obj;
+    }
+}
@@ -0,0 +1,30 @@
+package org.statefulj.framework.tests.model;
+
+import org.springframework.data.annotation.Id;
+import org.statefulj.persistence.annotations.State;
+
+public class JournalObject {
+    public final static String ONE_STATE = "one";
+    public final static String TWO_STATE = "two";
+
+    @Id
+    private Long id;
+
+    @State
+    private String state;
+
+    public JournalObject() {
+    }
+
+    public JournalObject(final Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getState() {
+        return state;
+    }
+}
@@ -0,0 +1,29 @@
+package org.statefulj.fsm;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A Persister that can move a set of Stateful Entities from one State to another by id, without loading them
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public interface BulkPersister<T> extends Persister<T> {
+
+    /**
+     * Move the Stateful Entities that are in the from State to the to State. Stateful Entities in any other State, or that don't exist, are left untouched. No
+     * {@link org.statefulj.fsm.model.Action} is invoked, callers run them for the returned ids if needed
+     *
+     * @param ids
+     *            Ids of the Stateful Entities
+     * @param from
+     *            The expected current State
+     * @param to
+     *            The next State
+     * @return The ids of the Stateful Entities that were moved
+     */
+    <ID> List<ID> transitionAll(Collection<ID> ids, State<T> from, State<T> to);
+}
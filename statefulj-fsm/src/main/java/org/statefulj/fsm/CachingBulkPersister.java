@@ -0,0 +1,37 @@
+package org.statefulj.fsm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A {@link CachingPersister} in front of a {@link BulkPersister}. Bulk transitions are passed through, dropping the cached States of the Stateful Entities
+ * they may have moved
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CachingBulkPersister<T> extends CachingPersister<T> implements BulkPersister<T> {
+
+    private final BulkPersister<T> persister;
+
+    public CachingBulkPersister(final BulkPersister<T> persister, final int maximumSize, final Function<T, Object> ids) {
+        super(persister, maximumSize, ids);
+        this.persister = persister;
+    }
+
+    @Override
+    public <ID> List<ID> transitionAll(final Collection<ID> ids, final State<T> from, final State<T> to) {
+        for (final ID id : ids) {
+            remove(id);
+        }
+        final List<ID> moved = persister.transitionAll(ids, from, to);
+
+        // A miss during the transition may have read the old State again
+        //
+        getAfterCommit().execute(() -> moved.forEach(this::remove));
+        return moved;
+    }
+}
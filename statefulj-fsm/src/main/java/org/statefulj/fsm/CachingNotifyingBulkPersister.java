@@ -0,0 +1,30 @@
+package org.statefulj.fsm;
+
+import java.util.function.Function;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A {@link CachingBulkPersister} in front of a Persister that is also a {@link NotifyingPersister}, such as the JPA Persister
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CachingNotifyingBulkPersister<T> extends CachingBulkPersister<T> implements NotifyingPersister<T> {
+
+    private final NotifyingPersister<T> persister;
+
+    /**
+     * @param persister
+     *            The underlying Persister, which must also be a {@link NotifyingPersister}
+     */
+    public CachingNotifyingBulkPersister(final BulkPersister<T> persister, final int maximumSize, final Function<T, Object> ids) {
+        super(persister, maximumSize, ids);
+        this.persister = (NotifyingPersister<T>) persister;
+    }
+
+    @Override
+    public boolean awaitChange(final T stateful, final State<T> current, final long timeout) throws InterruptedException {
+        return awaitChange(persister, stateful, current, timeout);
+    }
+}
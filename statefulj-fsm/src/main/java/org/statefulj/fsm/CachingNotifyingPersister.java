@@ -0,0 +1,27 @@
+package org.statefulj.fsm;
+
+import java.util.function.Function;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A {@link CachingPersister} in front of a {@link NotifyingPersister}. Waits are passed through, so the {@link FSM} is still woken up when a Stateful Entity
+ * leaves a blocking State
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CachingNotifyingPersister<T> extends CachingPersister<T> implements NotifyingPersister<T> {
+
+    private final NotifyingPersister<T> persister;
+
+    public CachingNotifyingPersister(final NotifyingPersister<T> persister, final int maximumSize, final Function<T, Object> ids) {
+        super(persister, maximumSize, ids);
+        this.persister = persister;
+    }
+
+    @Override
+    public boolean awaitChange(final T stateful, final State<T> current, final long timeout) throws InterruptedException {
+        return awaitChange(persister, stateful, current, timeout);
+    }
+}
@@ -0,0 +1,331 @@
+package org.statefulj.fsm;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.statefulj.common.utils.ReflectionUtils;
+import org.statefulj.fsm.model.State;
+
+/**
+ * A Persister that keeps the current State of the most recently used Stateful Entities, keyed by id, in front of another Persister. State changes are written
+ * through to the underlying Persister; an entry is dropped when the underlying Persister reports a stale State, so the retry reads it again. Blocking States
+ * aren't cached, since a Stateful Entity is expected to leave them through another path. Stateful Entities without an id are passed through.
+ * <p>
+ * Only put it in front of a Persister whose getCurrent is expensive, e.g. a remote or off heap store, and whose setCurrent detects stale States. Persisters
+ * that read the State off the Stateful Entity gain nothing from it.
+ * <p>
+ * The cache is split in stripes, each with its own lock and least recently used order, so the eviction order is only approximate across stripes. Entries are
+ * dropped immediately but only cached through the afterCommit Executor, which by default runs them right away; set it to one that defers them until the
+ * surrounding transaction commits so that uncommitted States are never seen by other callers. Each stripe counts its changes, and a State read through on a
+ * miss is only cached if its stripe wasn't changed in the meantime, so it can't overwrite a newer State. Use {@link #create} to keep the bulk support of a
+ * {@link BulkPersister} and the wake ups of a {@link NotifyingPersister}
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CachingPersister<T> implements Persister<T> {
+
+    private static final int MAX_STRIPES = 16;
+
+    private static final int MIN_STRIPE_SIZE = 64;
+
+    private final Persister<T> persister;
+
+    private final Function<T, Object> ids;
+
+    private final Stripe<T>[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private Executor afterCommit = Runnable::run;
+
+    /**
+     * @param persister
+     *            The underlying Persister
+     * @param maximumSize
+     *            Maximum number of cached States, the least recently used is evicted first
+     * @param ids
+     *            Returns the id of a Stateful Entity, or null if it doesn't have one
+     */
+    @SuppressWarnings("unchecked")
+    public CachingPersister(final Persister<T> persister, final int maximumSize, final Function<T, Object> ids) {
+        if (maximumSize <= 0) {
+            throw new RuntimeException("The maximum size of the cache must be positive, was " + maximumSize);
+        }
+        this.persister = persister;
+        this.ids = ids;
+
+        // Only stripe caches that are large enough to keep a useful LRU order in each stripe
+        //
+        int count = 1;
+        while ((count < MAX_STRIPES) && ((maximumSize / (count * 2)) >= MIN_STRIPE_SIZE)) {
+            count *= 2;
+        }
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe<>((maximumSize + count - 1) / count, this.evictions);
+        }
+    }
+
+    /**
+     * @param idType
+     *            The annotation of the id field of the Stateful Entity
+     */
+    public CachingPersister(final Persister<T> persister, final int maximumSize, final Class<T> clazz, final Class<? extends Annotation> idType) {
+        this(persister, maximumSize, idGetter(clazz, idType));
+    }
+
+    /**
+     * Wrap the Persister in a CachingPersister, which is a {@link BulkPersister} and a {@link NotifyingPersister} if the Persister is one
+     */
+    public static <T> CachingPersister<T> create(final Persister<T> persister, final int maximumSize, final Class<T> clazz,
+            final Class<? extends Annotation> idType) {
+        final Function<T, Object> ids = idGetter(clazz, idType);
+        if ((persister instanceof BulkPersister) && (persister instanceof NotifyingPersister)) {
+            return new CachingNotifyingBulkPersister<>((BulkPersister<T>) persister, maximumSize, ids);
+        }
+        if (persister instanceof BulkPersister) {
+            return new CachingBulkPersister<>((BulkPersister<T>) persister, maximumSize, ids);
+        }
+        if (persister instanceof NotifyingPersister) {
+            return new CachingNotifyingPersister<>((NotifyingPersister<T>) persister, maximumSize, ids);
+        }
+        return new CachingPersister<>(persister, maximumSize, ids);
+    }
+
+    @Override
+    public State<T> getCurrent(final T stateful) {
+        final Object id = ids.apply(stateful);
+        if (id == null) {
+            return persister.getCurrent(stateful);
+        }
+        final Stripe<T> stripe = stripe(id);
+        final State<T> cached;
+        final long version;
+        stripe.lock.lock();
+        try {
+            cached = stripe.get(id);
+            version = stripe.version;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        final State<T> state = persister.getCurrent(stateful);
+        if ((state != null) && !state.isBlocking()) {
+            afterCommit.execute(() -> {
+                stripe.lock.lock();
+                try {
+                    // A State change since the read may already have cached a newer State
+                    //
+                    if (stripe.version == version) {
+                        stripe.put(id, state);
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            });
+        }
+        return state;
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
+        setCurrent(stateful, current, next, null);
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next, final String event) throws StaleStateException {
+        final Object id = ids.apply(stateful);
+        remove(id);
+        persister.setCurrent(stateful, current, next, event);
+        cache(id, next);
+    }
+
+    @Override
+    public List<StateUpdate<T>> setCurrentAll(final List<StateUpdate<T>> updates) {
+        for (final StateUpdate<T> update : updates) {
+            remove(ids.apply(update.getStateful()));
+        }
+        final List<StateUpdate<T>> stale = persister.setCurrentAll(updates);
+        final Set<StateUpdate<T>> staleSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        staleSet.addAll(stale);
+        for (final StateUpdate<T> update : updates) {
+            if (!staleSet.contains(update)) {
+                cache(ids.apply(update.getStateful()), update.getNext());
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Drop the cached State of the Stateful Entity, for State changes made outside of this Persister
+     */
+    public void invalidate(final T stateful) {
+        remove(ids.apply(stateful));
+    }
+
+    public void invalidateAll() {
+        for (final Stripe<T> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.version++;
+                stripe.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public Persister<T> getPersister() {
+        return persister;
+    }
+
+    public Executor getAfterCommit() {
+        return afterCommit;
+    }
+
+    /**
+     * @param afterCommit
+     *            Runs the cache writes, once the surrounding transaction, if any, commits
+     */
+    public void setAfterCommit(final Executor afterCommit) {
+        this.afterCommit = afterCommit;
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Stripe<T> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    protected void remove(final Object id) {
+        if (id != null) {
+            final Stripe<T> stripe = stripe(id);
+            stripe.lock.lock();
+            try {
+                stripe.version++;
+                stripe.remove(id);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait on the underlying Persister. A signaled change drops the cached State, so the retry reads the new one
+     */
+    protected boolean awaitChange(final NotifyingPersister<T> notifying, final T stateful, final State<T> current, final long timeout) throws InterruptedException {
+        final boolean changed = notifying.awaitChange(stateful, current, timeout);
+        if (changed) {
+            remove(ids.apply(stateful));
+        }
+        return changed;
+    }
+
+    private void cache(final Object id, final State<T> state) {
+        if (id == null) {
+            return;
+        }
+        if ((state == null) || state.isBlocking()) {
+            remove(id);
+            return;
+        }
+        afterCommit.execute(() -> {
+            final Stripe<T> stripe = stripe(id);
+            stripe.lock.lock();
+            try {
+                stripe.version++;
+                stripe.put(id, state);
+            } finally {
+                stripe.lock.unlock();
+            }
+        });
+    }
+
+    private Stripe<T> stripe(final Object id) {
+        final int hash = id.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static <T> Function<T, Object> idGetter(final Class<T> clazz, final Class<? extends Annotation> idType) {
+        final Field field = (idType != null) ? ReflectionUtils.getReferencedField(clazz, idType) : null;
+        if (field == null) {
+            throw new RuntimeException(String.format("No id field defined for %s", clazz.getName()));
+        }
+        field.setAccessible(true);
+        return stateful -> {
+            try {
+                return field.get(stateful);
+            } catch (final IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static class Stripe<T> extends LinkedHashMap<Object, State<T>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private final LongAdder evictions;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Number of changes to the stripe, guarded by lock
+        //
+        private long version;
+
+        Stripe(final int maximumSize, final LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Object, State<T>> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
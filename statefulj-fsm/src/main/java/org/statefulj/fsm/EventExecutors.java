@@ -0,0 +1,56 @@
+package org.statefulj.fsm;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors used to dispatch events off the calling thread. This is the Java 8 variant, which runs events on a bounded pool of daemon threads. Once the pool
+ * and its queue are full, events run on the submitting thread, which throttles the producer instead of spawning threads without limit. The multi-release jar
+ * replaces it on Java 21 and later with a variant that starts a virtual thread per event
+ */
+public final class EventExecutors {
+    private static final int THREADS = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    private static final int QUEUE_SIZE = 10000;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private EventExecutors() {
+    }
+
+    /**
+     * @param name
+     *            Prefix of the thread names
+     * @return A new bounded executor
+     */
+    public static ExecutorService newEventExecutor(final String name) {
+        final AtomicInteger cnt = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, name + "-" + cnt.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return The executor shared by all the harnesses that aren't given their own
+     */
+    public static ExecutorService getDefault() {
+        return DefaultHolder.EXECUTOR;
+    }
+
+    /**
+     * @return true if events are dispatched on virtual threads
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    private static class DefaultHolder {
+        private static final ExecutorService EXECUTOR = newEventExecutor("statefulj-event");
+    }
+}
@@ -0,0 +1,81 @@
+package org.statefulj.fsm;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * The outcome of applying an event to one Stateful Entity through {@link FSM#onEvents(java.util.Collection, String, Object...)}
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class EventResult<T> {
+
+    public enum Status {
+        /**
+         * The Stateful Entity transitioned, the State is the new State
+         */
+        TRANSITIONED,
+
+        /**
+         * There is no Transition for the event from the current State, the State is the current State
+         */
+        NO_TRANSITION,
+
+        /**
+         * The current State is blocking and the event wasn't applied, the State is the current State
+         */
+        BLOCKED,
+
+        /**
+         * The event couldn't be applied because the Stateful Entity was changed concurrently or a Transition requested a retry. The event should be
+         * resubmitted; the State is the last State known for the Stateful Entity
+         */
+        STALE,
+
+        /**
+         * The Transition or the Action threw, see {@link EventResult#getFailure()}. If the Action threw, the State is the new State, which was committed before
+         * the Action ran; otherwise nothing was committed and the State is the current State
+         */
+        FAILED
+    }
+
+    private final T stateful;
+    private final State<T> state;
+    private final Status status;
+    private final Throwable failure;
+
+    public EventResult(final T stateful, final State<T> state, final Status status) {
+        this(stateful, state, status, null);
+    }
+
+    public EventResult(final T stateful, final State<T> state, final Status status, final Throwable failure) {
+        this.stateful = stateful;
+        this.state = state;
+        this.status = status;
+        this.failure = failure;
+    }
+
+    public T getStateful() {
+        return stateful;
+    }
+
+    public State<T> getState() {
+        return state;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The exception thrown by the Transition or the Action of a {@link Status#FAILED} event, null otherwise
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "EventResult[stateful=" + stateful + ", state=" + ((state == null) ? null : state.getName()) + ", status=" + status + ((failure == null) ? "" : ", failure=" + failure) + "]";
+    }
+}
@@ -1,21 +1,46 @@
 package org.statefulj.fsm;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.statefulj.fsm.model.Action;
 import org.statefulj.fsm.model.State;
 import org.statefulj.fsm.model.StateActionPair;
 import org.statefulj.fsm.model.Transition;
+import org.statefulj.fsm.model.impl.CompiledStateImpl;
+import org.statefulj.fsm.retry.FixedRetryPolicy;
 
 public class FSM<T> {
     private static final Logger logger = LoggerFactory.getLogger(FSM.class);
 
     private static final int DEFAULT_RETRIES = 100;
     private static final int DEFAULT_RETRY_INTERVAL = 100;
-    private int retryAttempts = DEFAULT_RETRIES;
     private int retryInterval = DEFAULT_RETRY_INTERVAL;
+    private RetryPolicy retryPolicy = new FixedRetryPolicy(DEFAULT_RETRIES);
     private Persister<T> persister;
+    private FSMDefinition<T> definition;
     private String name = "FSM";
+    private ScheduledExecutorService scheduler;
+    private final Set<String> deferredStates = new CopyOnWriteArraySet<>();
+    private final ConcurrentHashMap<Object, ArrayDeque<DeferredEvent<T>>> deferredEvents = new ConcurrentHashMap<>();
+    private final List<FSMListener<T>> listeners = new CopyOnWriteArrayList<>();
 
     public FSM(final String name) {
         this.name = name;
@@ -33,58 +58,407 @@ public class FSM<T> {
     public FSM(final String name, final Persister<T> persister, final int retryAttempts, final int retryInterval) {
         this.name = name;
         this.persister = persister;
-        this.retryAttempts = retryAttempts;
         this.retryInterval = retryInterval;
+        this.setRetryAttempts(retryAttempts);
     }
 
-    public State<T> onEvent(final T stateful, final String event, final Object... args) throws TooBusyException {
-        int attempts = 0;
+    public FSM(final String name, final Persister<T> persister, final FSMDefinition<T> definition) {
+        this(name, persister);
+        this.definition = definition;
+    }
 
-        while ((retryAttempts == -1) || (attempts < retryAttempts)) {
-            try {
-                State<T> current = this.getCurrentState(stateful);
+    public FSM(final String name, final Persister<T> persister, final RetryPolicy retryPolicy) {
+        this.name = name;
+        this.persister = persister;
+        this.retryPolicy = retryPolicy;
+    }
 
-                final Transition<T> transition = this.getTransition(event, current);
+    public FSM(final String name, final Persister<T> persister, final RetryPolicy retryPolicy, final int retryInterval) {
+        this.name = name;
+        this.persister = persister;
+        this.retryPolicy = retryPolicy;
+        this.retryInterval = retryInterval;
+    }
 
-                if (transition != null) {
-                    current = this.transition(stateful, current, event, transition, args);
-                } else {
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("{}({})::{}({})->{}/noop", name, stateful.getClass().getSimpleName(), current.getName(), event, current.getName());
-                    }
+    public State<T> onEvent(final T stateful, final String event, final Object... args) throws TooBusyException {
+        return this.onEvent(stateful, event, this.getEventId(event), args);
+    }
 
-                    if (current.isBlocking()) {
-                        this.setCurrent(stateful, current, current);
-                        throw new WaitAndRetryException(retryInterval);
-                    }
-                }
+    /**
+     * Process an event by its id in the {@link FSMDefinition} of this FSM, so the Transition is looked up without hashing the event name
+     *
+     * @param eventId
+     *            Id of the event, see {@link FSMDefinition#getEventId(String)}
+     */
+    public State<T> onEvent(final T stateful, final int eventId, final Object... args) throws TooBusyException {
+        if (this.definition == null) {
+            throw new IllegalStateException("Events can only be sent by id to an FSM with an FSMDefinition");
+        }
+        return this.onEvent(stateful, this.definition.getEvent(eventId), eventId, args);
+    }
 
-                return current;
+    private State<T> onEvent(final T stateful, final String event, final int eventId, final Object... args) throws TooBusyException {
+        final RetryPolicy retryPolicy = this.retryPolicy;
+        int attempts = 0;
+        long delay = 0;
+        State<T> current = null;
 
+        while (retryPolicy.canAttempt(attempts)) {
+            try {
+                final State<T> state = this.processEvent(stateful, event, eventId, current, null, args);
+                return (state != null) ? state : this.getCurrentState(stateful);
             } catch (final RetryException re) {
-                FSM.logger.warn("{}({})::Retrying event", name, stateful);
+                current = this.getObservedState(stateful, re);
+                attempts++;
+
+                // The Stateful Entity was signaled out of a blocking State, so there is nothing to back off from
+                //
+                final boolean signaled = isSignaled(re);
+                if (!signaled) {
+                    delay = retryPolicy.getDelay(attempts, delay, re);
+                }
+                final long wait = signaled ? 0 : delay;
+                FSM.logger.warn("{}({})::Retrying event in {}ms", name, stateful, wait);
+                this.fireRetry(stateful, event, attempts, wait, re);
 
-                if (WaitAndRetryException.class.isInstance(re)) {
+                if (wait > 0) {
                     try {
-                        Thread.sleep(((WaitAndRetryException) re).getWait());
+                        Thread.sleep(wait);
                     } catch (final InterruptedException ie) {
                         throw new RuntimeException(ie);
                     }
                 }
-                attempts++;
             }
         }
 
         FSM.logger.error("{}({})::Unable to process event", this.name, stateful);
+        this.fireTooBusy(stateful, event, attempts);
         throw new TooBusyException();
     }
 
+    /**
+     * Process the event without holding the calling thread while waiting to retry. The first attempt runs on the calling thread; retries are rescheduled on the
+     * {@link ScheduledExecutorService} once their wait interval has elapsed. The future completes exceptionally with a {@link TooBusyException} if the retry
+     * attempts are exhausted. If the Stateful Entity is in a deferred State, the future completes once the event has been replayed
+     *
+     * @param stateful
+     *            The Stateful Entity
+     * @param event
+     *            The event
+     * @param args
+     *            Optional parameters passed to the Action
+     * @return A future holding the State the Stateful Entity ended up in
+     */
+    public CompletableFuture<State<T>> onEventAsync(final T stateful, final String event, final Object... args) {
+        final CompletableFuture<State<T>> future = new CompletableFuture<>();
+        this.attemptAsync(future, this.retryPolicy, 0, 0, null, stateful, event, args);
+        return future;
+    }
+
+    private void attemptAsync(final CompletableFuture<State<T>> future, final RetryPolicy retryPolicy, final int attempts, final long previousDelay, final State<T> current,
+            final T stateful, final String event, final Object... args) {
+        if (!retryPolicy.canAttempt(attempts)) {
+            FSM.logger.error("{}({})::Unable to process event", this.name, stateful);
+            this.fireTooBusy(stateful, event, attempts);
+            future.completeExceptionally(new TooBusyException());
+            return;
+        }
+
+        try {
+            final State<T> state = this.processEvent(stateful, event, current, future, args);
+            if (state != null) {
+                future.complete(state);
+            }
+        } catch (final RetryException re) {
+            final long delay = retryPolicy.getDelay(attempts + 1, previousDelay, re);
+            FSM.logger.warn("{}({})::Retrying event in {}ms", name, stateful, delay);
+            this.fireRetry(stateful, event, attempts + 1, delay, re);
+
+            final State<T> observed = this.getObservedState(stateful, re);
+            try {
+                this.getScheduler().schedule(() -> this.attemptAsync(future, retryPolicy, attempts + 1, delay, observed, stateful, event, args), delay, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException ree) {
+                future.completeExceptionally(ree);
+            }
+        } catch (final Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Apply an event to a set of Stateful Entities. All Transitions are evaluated first, the resulting State changes are then committed through a single call to
+     * {@link Persister#setCurrentAll(List)} and the Actions are executed for the Stateful Entities whose State was changed. Events aren't retried: a Stateful
+     * Entity that was changed concurrently is reported as {@link EventResult.Status#STALE} and a blocking State as {@link EventResult.Status#BLOCKED}
+     * <p>
+     * The State changes are committed before any Action runs, so a failing Action doesn't roll back its own Stateful Entity or the others. A Transition or
+     * Action that throws, or an Action that requests a retry, is reported as {@link EventResult.Status#FAILED} with the exception, and the remaining Stateful
+     * Entities are still processed. The State of a failed Action is the new State, whose Action must be recovered by the caller
+     *
+     * @param statefuls
+     *            The Stateful Entities
+     * @param event
+     *            The event
+     * @param args
+     *            Optional parameters passed to the Actions
+     * @return The result for each Stateful Entity, in iteration order of statefuls
+     */
+    public List<EventResult<T>> onEvents(final Collection<T> statefuls, final String event, final Object... args) {
+        final List<EventResult<T>> results = new ArrayList<>(statefuls.size());
+        final List<PendingEvent<T>> pending = new ArrayList<>(statefuls.size());
+        final List<StateUpdate<T>> updates = new ArrayList<>(statefuls.size());
+        final int eventId = this.getEventId(event);
+
+        for (final T stateful : statefuls) {
+            final State<T> current = this.getCurrentState(stateful);
+            final Transition<T> transition = this.getTransition(event, eventId, current);
+
+            if (transition == null) {
+                results.add(new EventResult<>(stateful, current, current.isBlocking() ? EventResult.Status.BLOCKED : EventResult.Status.NO_TRANSITION));
+                continue;
+            }
+
+            try {
+                final StateActionPair<T> pair = transition.getStateActionPair(stateful);
+                final StateUpdate<T> update = this.requiresStateUpdate(transition) ? new StateUpdate<>(stateful, current, pair.getState()) : null;
+                if (update != null) {
+                    updates.add(update);
+                }
+                pending.add(new PendingEvent<>(results.size(), stateful, current, transition, pair, update));
+                results.add(null);
+            } catch (final RetryException re) {
+                results.add(new EventResult<>(stateful, current, EventResult.Status.STALE));
+            } catch (final RuntimeException e) {
+                FSM.logger.warn("{}({})::Transition failed, event not applied", name, stateful, e);
+                results.add(new EventResult<>(stateful, current, EventResult.Status.FAILED, e));
+            }
+        }
+
+        final Set<StateUpdate<T>> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+        long persistNanos = 0;
+        if (!updates.isEmpty()) {
+            final long start = listeners.isEmpty() ? 0 : System.nanoTime();
+            stale.addAll(this.setCurrentAll(updates));
+            if (!listeners.isEmpty()) {
+                // The time of the bulk update is shared evenly across the Stateful Entities it covered
+                //
+                persistNanos = (System.nanoTime() - start) / updates.size();
+                this.firePersisted(updates, stale, persistNanos);
+            }
+        }
+
+        for (final PendingEvent<T> evt : pending) {
+            final State<T> next = evt.pair.getState();
+            EventResult<T> result;
+
+            if ((evt.update != null) && stale.contains(evt.update)) {
+                FSM.logger.warn("{}({})::Stale state, event not applied", name, evt.stateful);
+                result = new EventResult<>(evt.stateful, this.getCurrentState(evt.stateful), EventResult.Status.STALE);
+            } else {
+                try {
+                    final long start = listeners.isEmpty() ? 0 : System.nanoTime();
+                    final T stateful = this.beforeAction(evt.stateful, evt.transition, event, args);
+                    this.executeAction(evt.pair.getAction(), stateful, event, evt.current.getName(), next.getName(), args);
+                    if (!listeners.isEmpty()) {
+                        final long nanos = System.nanoTime() - start + ((evt.update != null) ? persistNanos : 0);
+                        for (final FSMListener<T> listener : listeners) {
+                            listener.onTransition(stateful, event, evt.current, next, nanos);
+                        }
+                    }
+                    if (this.isDeferred(evt.current) && !next.equals(evt.current)) {
+                        this.replayDeferred(stateful);
+                    }
+                    result = new EventResult<>(stateful, next, EventResult.Status.TRANSITIONED);
+                } catch (final RetryException | RuntimeException e) {
+                    // The State is already committed, the event can't be retried
+                    //
+                    FSM.logger.warn("{}({})::Action failed after the State was changed to {}", name, evt.stateful, next.getName(), e);
+                    result = new EventResult<>(evt.stateful, next, EventResult.Status.FAILED, e);
+                }
+            }
+            results.set(evt.position, result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Make a single attempt to process the event
+     *
+     * @param observed
+     *            The State observed by the Persister when the previous attempt was rejected as stale, null to read the current State from the Persister
+     * @param future
+     *            The future of an asynchronous event, null if the calling thread may block waiting for the Stateful Entity to leave a blocking State
+     * @return The resulting State, or null if the event was deferred
+     */
+    protected State<T> processEvent(final T stateful, final String event, final State<T> observed, final CompletableFuture<State<T>> future, final Object... args)
+            throws RetryException {
+        return this.processEvent(stateful, event, this.getEventId(event), observed, future, args);
+    }
+
+    /**
+     * @param eventId
+     *            Id of the event in the {@link FSMDefinition}, -1 to look up the Transition by name
+     */
+    protected State<T> processEvent(final T stateful, final String event, final int eventId, final State<T> observed, final CompletableFuture<State<T>> future,
+            final Object... args) throws RetryException {
+        final State<T> current = (observed != null) ? observed : this.getCurrentState(stateful);
+
+        final Transition<T> transition = this.getTransition(event, eventId, current);
+
+        if (transition != null) {
+            final long start = listeners.isEmpty() ? 0 : System.nanoTime();
+            final State<T> next = this.transition(stateful, current, event, transition, args);
+            if (!listeners.isEmpty()) {
+                final long nanos = System.nanoTime() - start;
+                for (final FSMListener<T> listener : listeners) {
+                    listener.onTransition(stateful, event, current, next, nanos);
+                }
+            }
+            if (this.isDeferred(current) && !next.equals(current)) {
+                this.replayDeferred(stateful);
+            }
+            return next;
+        } else {
+            if (logger.isDebugEnabled()) {
+                logger.debug("{}({})::{}({})->{}/noop", name, stateful.getClass().getSimpleName(), current.getName(), event, current.getName());
+            }
+
+            if (this.isDeferred(current)) {
+                this.defer(stateful, current, event, (future != null) ? future : new CompletableFuture<>(), args);
+                return null;
+            }
+
+            if (current.isBlocking()) {
+                if ((future == null) && (persister instanceof NotifyingPersister)) {
+                    // Wait for the Stateful Entity to leave the blocking State; only verify against the Persister if nothing was signaled
+                    //
+                    final boolean signaled = this.awaitChange(stateful, current);
+                    if (!signaled) {
+                        this.setCurrent(stateful, current, current);
+                    }
+                    throw new WaitAndRetryException(0, signaled);
+                }
+                this.setCurrent(stateful, current, current);
+                throw new WaitAndRetryException(retryInterval);
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * States listed here must be blocking. An event that arrives while a Stateful Entity is in one of them is queued instead of retried, and is replayed on the
+     * thread that moves the Stateful Entity out of the State. Events are queued per {@link #getDeferralKey(Object)}
+     *
+     * @param deferredStates
+     *            Names of the deferred States
+     */
+    public void setDeferredStates(final Collection<String> deferredStates) {
+        this.deferredStates.clear();
+        this.deferredStates.addAll(deferredStates);
+    }
+
+    public Set<String> getDeferredStates() {
+        return Collections.unmodifiableSet(deferredStates);
+    }
+
+    protected boolean isDeferred(final State<T> state) {
+        return !deferredStates.isEmpty() && state.isBlocking() && deferredStates.contains(state.getName());
+    }
+
+    /**
+     * @param stateful
+     *            The Stateful Entity
+     * @return The key deferred events of the Stateful Entity are queued under, by default the identity of the Stateful Entity
+     */
+    protected Object getDeferralKey(final T stateful) {
+        return new StateChangeMonitor.IdentityKey(stateful);
+    }
+
+    private void defer(final T stateful, final State<T> current, final String event, final CompletableFuture<State<T>> future, final Object... args) throws RetryException {
+        final DeferredEvent<T> deferred = new DeferredEvent<>(event, future, args);
+        deferredEvents.compute(this.getDeferralKey(stateful), (key, queue) -> {
+            final ArrayDeque<DeferredEvent<T>> q = (queue == null) ? new ArrayDeque<>() : queue;
+            q.add(deferred);
+            return q;
+        });
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}({})::{}({})/deferred", name, stateful.getClass().getSimpleName(), current.getName(), event);
+        }
+
+        // Verify the Stateful Entity didn't leave the State before the event was queued, otherwise nobody would replay it
+        //
+        try {
+            this.setCurrent(stateful, current, current);
+        } catch (final StaleStateException e) {
+            this.replayDeferred(stateful);
+        }
+    }
+
+    /**
+     * Replay the deferred events of the Stateful Entity in arrival order, until the queue is empty or the Stateful Entity is in a deferred State again
+     *
+     * @param stateful
+     *            The Stateful Entity
+     */
+    protected void replayDeferred(final T stateful) {
+        final Object key = this.getDeferralKey(stateful);
+        while (deferredEvents.containsKey(key) && !this.isDeferred(this.getCurrentState(stateful))) {
+            final List<DeferredEvent<T>> polled = new ArrayList<>(1);
+            deferredEvents.computeIfPresent(key, (k, queue) -> {
+                polled.add(queue.poll());
+                return queue.isEmpty() ? null : queue;
+            });
+            if (polled.isEmpty()) {
+                return;
+            }
+            final DeferredEvent<T> deferred = polled.get(0);
+            FSM.logger.debug("{}({})::Replaying deferred event {}", name, stateful, deferred.event);
+            this.attemptAsync(deferred.future, this.retryPolicy, 0, 0, null, stateful, deferred.event, deferred.args);
+        }
+    }
+
+    public void addListener(final FSMListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final FSMListener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    public List<FSMListener<T>> getListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+
+    public void setListeners(final Collection<FSMListener<T>> listeners) {
+        this.listeners.clear();
+        this.listeners.addAll(listeners);
+    }
+
+    /**
+     * @return The maximum number of attempts allowed by the {@link RetryPolicy}, -1 if they are unbounded or the policy doesn't limit them by count
+     */
     public int getRetryAttempts() {
-        return retryAttempts;
+        return retryPolicy.getRetryAttempts();
     }
 
+    /**
+     * Set the number of attempts. This replaces the {@link RetryPolicy} with a {@link FixedRetryPolicy}
+     *
+     * @param retries
+     *            Maximum number of attempts, -1 to retry forever
+     */
     public void setRetryAttempts(final int retries) {
-        this.retryAttempts = retries;
+        this.retryPolicy = new FixedRetryPolicy(retries);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
     }
 
     public int getRetryInterval() {
@@ -95,6 +469,26 @@ public class FSM<T> {
         this.retryInterval = retryInterval;
     }
 
+    public ScheduledExecutorService getScheduler() {
+        return (scheduler != null) ? scheduler : SchedulerHolder.SCHEDULER;
+    }
+
+    public void setScheduler(final ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public FSMDefinition<T> getDefinition() {
+        return definition;
+    }
+
+    /**
+     * @param definition
+     *            The compiled definition the States of this FSM belong to, lets events be sent by id
+     */
+    public void setDefinition(final FSMDefinition<T> definition) {
+        this.definition = definition;
+    }
+
     public Persister<T> getPersister() {
         return persister;
     }
@@ -115,19 +509,89 @@ public class FSM<T> {
         return this.persister.getCurrent(obj);
     }
 
+    private State<T> getObservedState(final T stateful, final RetryException re) {
+        return (re instanceof StaleStateException) ? ((StaleStateException) re).getCurrent(stateful) : null;
+    }
+
     protected Transition<T> getTransition(final String event, final State<T> current) {
         return current.getTransition(event);
     }
 
+    protected Transition<T> getTransition(final String event, final int eventId, final State<T> current) {
+        if ((eventId >= 0) && (current instanceof CompiledStateImpl) && (((CompiledStateImpl<T>) current).getEvents() == this.definition.getEvents())) {
+            return ((CompiledStateImpl<T>) current).getTransition(eventId);
+        }
+        return this.getTransition(event, current);
+    }
+
+    private int getEventId(final String event) {
+        return (this.definition != null) ? this.definition.getEventId(event) : -1;
+    }
+
     protected State<T> transition(final T stateful, final State<T> current, final String event, final Transition<T> transition, final Object... args) throws RetryException {
         final StateActionPair<T> pair = transition.getStateActionPair(stateful);
-        setCurrent(stateful, current, pair.getState());
+        setCurrent(stateful, current, pair.getState(), event);
         executeAction(pair.getAction(), stateful, event, current.getName(), pair.getState().getName(), args);
         return pair.getState();
     }
 
     protected void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
-        persister.setCurrent(stateful, current, next);
+        setCurrent(stateful, current, next, null);
+    }
+
+    protected void setCurrent(final T stateful, final State<T> current, final State<T> next, final String event) throws StaleStateException {
+        if (listeners.isEmpty()) {
+            persister.setCurrent(stateful, current, next, event);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            persister.setCurrent(stateful, current, next, event);
+        } catch (final StaleStateException e) {
+            for (final FSMListener<T> listener : listeners) {
+                listener.onStale(stateful, current, next);
+            }
+            throw e;
+        }
+        final long nanos = System.nanoTime() - start;
+        for (final FSMListener<T> listener : listeners) {
+            listener.onPersist(stateful, current, next, nanos);
+        }
+    }
+
+    /**
+     * @param transition
+     *            A Transition selected by {@link #onEvents(Collection, String, Object...)}
+     * @return false if the Transition doesn't change the persisted State
+     */
+    protected boolean requiresStateUpdate(final Transition<T> transition) {
+        return true;
+    }
+
+    /**
+     * Invoked by {@link #onEvents(Collection, String, Object...)} once the State change has been committed and before the Action is executed
+     *
+     * @return The Stateful Entity the Action is executed against
+     */
+    protected T beforeAction(final T stateful, final Transition<T> transition, final String event, final Object... args) {
+        return stateful;
+    }
+
+    private static boolean isSignaled(final RetryException re) {
+        return (re instanceof WaitAndRetryException) && ((WaitAndRetryException) re).isSignaled() && (((WaitAndRetryException) re).getWait() == 0);
+    }
+
+    protected boolean awaitChange(final T stateful, final State<T> current) {
+        try {
+            return ((NotifyingPersister<T>) persister).awaitChange(stateful, current, retryInterval);
+        } catch (final InterruptedException ie) {
+            throw new RuntimeException(ie);
+        }
+    }
+
+    protected List<StateUpdate<T>> setCurrentAll(final List<StateUpdate<T>> updates) {
+        return persister.setCurrentAll(updates);
     }
 
     protected void executeAction(final Action<T> action, final T stateful, final String event, final String from, final String to, final Object... args) throws RetryException {
@@ -136,7 +600,85 @@ public class FSM<T> {
         }
 
         if (action != null) {
+            if (listeners.isEmpty()) {
+                action.execute(stateful, event, args);
+                return;
+            }
+
+            final long start = System.nanoTime();
             action.execute(stateful, event, args);
+            final long nanos = System.nanoTime() - start;
+            for (final FSMListener<T> listener : listeners) {
+                listener.onAction(stateful, event, from, to, nanos);
+            }
+        }
+    }
+
+    private void firePersisted(final List<StateUpdate<T>> updates, final Set<StateUpdate<T>> stale, final long nanos) {
+        for (final StateUpdate<T> update : updates) {
+            final boolean rejected = stale.contains(update);
+            for (final FSMListener<T> listener : listeners) {
+                if (rejected) {
+                    listener.onStale(update.getStateful(), update.getCurrent(), update.getNext());
+                } else {
+                    listener.onPersist(update.getStateful(), update.getCurrent(), update.getNext(), nanos);
+                }
+            }
+        }
+    }
+
+    private void fireRetry(final T stateful, final String event, final int attempts, final long delay, final RetryException e) {
+        for (final FSMListener<T> listener : listeners) {
+            listener.onRetry(stateful, event, attempts, delay, e);
         }
     }
+
+    private void fireTooBusy(final T stateful, final String event, final int attempts) {
+        for (final FSMListener<T> listener : listeners) {
+            listener.onTooBusy(stateful, event, attempts);
+        }
+    }
+
+    private static class DeferredEvent<T> {
+        private final String event;
+        private final CompletableFuture<State<T>> future;
+        private final Object[] args;
+
+        DeferredEvent(final String event, final CompletableFuture<State<T>> future, final Object... args) {
+            this.event = event;
+            this.future = future;
+            this.args = args;
+        }
+    }
+
+    private static class PendingEvent<T> {
+        private final int position;
+        private final T stateful;
+        private final State<T> current;
+        private final Transition<T> transition;
+        private final StateActionPair<T> pair;
+        private final StateUpdate<T> update;
+
+        PendingEvent(final int position, final T stateful, final State<T> current, final Transition<T> transition, final StateActionPair<T> pair, final StateUpdate<T> update) {
+            this.position = position;
+            this.stateful = stateful;
+            this.current = current;
+            this.transition = transition;
+            this.pair = pair;
+            this.update = update;
+        }
+    }
+
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService SCHEDULER = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            private final AtomicInteger cnt = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "statefulj-fsm-retry-" + cnt.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 }
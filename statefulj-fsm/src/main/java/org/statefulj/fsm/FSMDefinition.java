@@ -0,0 +1,191 @@
+package org.statefulj.fsm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.StateActionPair;
+import org.statefulj.fsm.model.Transition;
+import org.statefulj.fsm.model.impl.CompiledStateImpl;
+import org.statefulj.fsm.model.impl.CompiledTransitionImpl;
+import org.statefulj.fsm.model.impl.DeterministicTransitionImpl;
+import org.statefulj.fsm.model.impl.StateImpl;
+
+/**
+ * An immutable, compiled form of a set of {@link StateImpl} States. State and Event names are interned to dense int ids and each State resolves its
+ * Transitions through an array indexed by event id instead of a HashMap. A definition holds no mutable state and can be shared between threads without synchronization.
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public final class FSMDefinition<T> {
+    private final List<State<T>> states;
+    private final State<T> start;
+    private final Map<String, Integer> stateIds;
+    private final Map<String, Integer> eventIds;
+    private final List<String> events;
+    private final Map<String, State<T>> byName;
+
+    @SuppressWarnings("unchecked")
+    private FSMDefinition(final Collection<State<T>> sources, final State<T> start) {
+        final Map<String, Integer> stateIds = new HashMap<>();
+        final Map<String, Integer> eventIds = new HashMap<>();
+        final List<String> events = new ArrayList<>();
+
+        for (final State<T> source : sources) {
+            if (!(source instanceof StateImpl)) {
+                throw new IllegalArgumentException("Unable to compile " + source + ", only StateImpl States can be compiled");
+            }
+            if (stateIds.put(source.getName(), stateIds.size()) != null) {
+                throw new IllegalArgumentException("Duplicate State name " + source.getName());
+            }
+            for (final String event : ((StateImpl<T>) source).getTransitions().keySet()) {
+                if (!eventIds.containsKey(event)) {
+                    eventIds.put(event, events.size());
+                    events.add(event);
+                }
+            }
+        }
+
+        if ((start == null) || !stateIds.containsKey(start.getName())) {
+            throw new IllegalArgumentException("Start State " + start + " is not part of the definition");
+        }
+
+        this.stateIds = Collections.unmodifiableMap(stateIds);
+        this.eventIds = Collections.unmodifiableMap(eventIds);
+        this.events = Collections.unmodifiableList(events);
+
+        // Build the States first, with an empty row of Transitions each, so the compiled Transitions can reference them
+        //
+        final CompiledStateImpl<T>[] compiled = new CompiledStateImpl[stateIds.size()];
+        final Transition<T>[][] rows = new Transition[compiled.length][];
+        final Map<String, State<T>> byName = new HashMap<>();
+        for (final State<T> source : sources) {
+            final int id = stateIds.get(source.getName());
+            rows[id] = new Transition[events.size()];
+            compiled[id] = new CompiledStateImpl<>(id, source.getName(), source.isEndState(), source.isBlocking(), this.eventIds, this.events, rows[id]);
+            byName.put(source.getName(), compiled[id]);
+        }
+        this.byName = Collections.unmodifiableMap(byName);
+        this.states = Collections.unmodifiableList(Arrays.<State<T>>asList(compiled));
+        this.start = compiled[stateIds.get(start.getName())];
+
+        for (final State<T> source : sources) {
+            final Transition<T>[] row = rows[stateIds.get(source.getName())];
+            for (final Entry<String, Transition<T>> entry : ((StateImpl<T>) source).getTransitions().entrySet()) {
+                row[eventIds.get(entry.getKey())] = compileTransition(this.byName, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Compile a set of States into an immutable definition. The source States are not modified and subsequent changes to them are not reflected in the definition.
+     *
+     * @param states
+     *            The States of the FSM, all of which must be {@link StateImpl}
+     * @param start
+     *            The start State
+     * @return The compiled definition
+     */
+    public static <T> FSMDefinition<T> compile(final Collection<State<T>> states, final State<T> start) {
+        return new FSMDefinition<>(states, start);
+    }
+
+    public State<T> getStart() {
+        return start;
+    }
+
+    public List<State<T>> getStates() {
+        return states;
+    }
+
+    public int getStateCount() {
+        return states.size();
+    }
+
+    public int getEventCount() {
+        return events.size();
+    }
+
+    /**
+     * @return The events, indexed by event id
+     */
+    public List<String> getEvents() {
+        return events;
+    }
+
+    public String getEvent(final int eventId) {
+        return events.get(eventId);
+    }
+
+    public State<T> getState(final int stateId) {
+        return states.get(stateId);
+    }
+
+    public State<T> getState(final String name) {
+        return byName.get(name);
+    }
+
+    public int getStateId(final String name) {
+        final Integer stateId = stateIds.get(name);
+        return (stateId == null) ? -1 : stateId;
+    }
+
+    public int getEventId(final String event) {
+        final Integer eventId = eventIds.get(event);
+        return (eventId == null) ? -1 : eventId;
+    }
+
+    public Transition<T> getTransition(final int stateId, final int eventId) {
+        return ((CompiledStateImpl<T>) states.get(stateId)).getTransition(eventId);
+    }
+
+    public Transition<T> getTransition(final int stateId, final String event) {
+        return getTransition(stateId, getEventId(event));
+    }
+
+    /**
+     * Map a State returned by a source Transition onto its compiled counterpart
+     *
+     * @param state
+     *            A State of this definition, or a source State with the same name
+     * @return The compiled State
+     */
+    public State<T> resolve(final State<T> state) {
+        return resolve(byName, state);
+    }
+
+    /**
+     * @return true if the State belongs to this definition
+     */
+    public boolean contains(final State<T> state) {
+        return (state instanceof CompiledStateImpl) && (states.get(((CompiledStateImpl<T>) state).getId()) == state);
+    }
+
+    private static <T> State<T> resolve(final Map<String, State<T>> byName, final State<T> state) {
+        final State<T> resolved = byName.get(state.getName());
+        if (resolved == null) {
+            throw new IllegalStateException("State " + state.getName() + " is not part of the definition");
+        }
+        return resolved;
+    }
+
+    private static <T> Transition<T> compileTransition(final Map<String, State<T>> byName, final Transition<T> transition) {
+        if (transition.getClass() == DeterministicTransitionImpl.class) {
+            final StateActionPair<T> pair = ((DeterministicTransitionImpl<T>) transition).getStateActionPair(null);
+            return new DeterministicTransitionImpl<>(resolve(byName, pair.getState()), pair.getAction());
+        }
+        return new CompiledTransitionImpl<>(byName, transition);
+    }
+
+    @Override
+    public String toString() {
+        return "FSMDefinition[states=" + stateIds.keySet() + ", events=" + eventIds.keySet() + ", start=" + start.getName() + "]";
+    }
+}
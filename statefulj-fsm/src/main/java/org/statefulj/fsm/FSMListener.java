@@ -0,0 +1,63 @@
+package org.statefulj.fsm;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * Observes the events processed by an {@link FSM}. Listeners are invoked synchronously on the thread processing the event, so implementations must be thread
+ * safe and cheap. Timings are only taken when at least one listener is registered.
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public interface FSMListener<T> {
+
+    /**
+     * A Transition completed: the State was persisted and the Action executed
+     *
+     * @param nanos
+     *            Time spent in the Transition, including the Persister and the Action
+     */
+    default void onTransition(final T stateful, final String event, final State<T> from, final State<T> to, final long nanos) {
+    }
+
+    /**
+     * The Persister changed the State of the Stateful Entity
+     *
+     * @param nanos
+     *            Time spent in {@link Persister#setCurrent(Object, State, State)}
+     */
+    default void onPersist(final T stateful, final State<T> current, final State<T> next, final long nanos) {
+    }
+
+    /**
+     * The Persister rejected a State change because the State of the Stateful Entity was changed concurrently
+     */
+    default void onStale(final T stateful, final State<T> current, final State<T> next) {
+    }
+
+    /**
+     * An Action was executed
+     *
+     * @param nanos
+     *            Time spent in the Action
+     */
+    default void onAction(final T stateful, final String event, final String from, final String to, final long nanos) {
+    }
+
+    /**
+     * An attempt failed and the event will be retried
+     *
+     * @param attempts
+     *            Number of failed attempts so far
+     * @param delay
+     *            Milliseconds until the next attempt
+     */
+    default void onRetry(final T stateful, final String event, final int attempts, final long delay, final RetryException e) {
+    }
+
+    /**
+     * The retry attempts were exhausted and the event was dropped with a {@link TooBusyException}
+     */
+    default void onTooBusy(final T stateful, final String event, final int attempts) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.statefulj.fsm;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A Persister that can wake up threads waiting for a Stateful Entity to leave a blocking State, so the {@link FSM} doesn't have to poll
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public interface NotifyingPersister<T> extends Persister<T> {
+
+    /**
+     * Block until the State of the Stateful Entity is changed from current, or the timeout elapses
+     *
+     * @param stateful
+     *            The Stateful Entity
+     * @param current
+     *            The State the Stateful Entity was last seen in
+     * @param timeout
+     *            Maximum time to wait in milliseconds
+     * @return true if a change was signaled, false if the timeout elapsed
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     */
+    boolean awaitChange(T stateful, State<T> current, long timeout) throws InterruptedException;
+}
@@ -1,9 +1,41 @@
 package org.statefulj.fsm;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import org.statefulj.fsm.model.State;
 
 public interface Persister<T> {
     State<T> getCurrent(T stateful);
 
     void setCurrent(T stateful, State<T> current, State<T> next) throws StaleStateException;
+
+    /**
+     * Set the State as the result of an event. Persisters that record the history of the Stateful Entity override this; the default ignores the event
+     *
+     * @param event
+     *            The event that caused the change, null if the State is only verified
+     */
+    default void setCurrent(final T stateful, final State<T> current, final State<T> next, final String event) throws StaleStateException {
+        setCurrent(stateful, current, next);
+    }
+
+    /**
+     * Apply a set of State changes. Implementations should commit the changes in as few round trips as possible; the default applies them one by one
+     *
+     * @param updates
+     *            The State changes
+     * @return The updates that weren't applied because the Stateful Entity wasn't in the expected current State
+     */
+    default List<StateUpdate<T>> setCurrentAll(final List<StateUpdate<T>> updates) {
+        final List<StateUpdate<T>> stale = new LinkedList<>();
+        for (final StateUpdate<T> update : updates) {
+            try {
+                setCurrent(update.getStateful(), update.getCurrent(), update.getNext());
+            } catch (final StaleStateException e) {
+                stale.add(update);
+            }
+        }
+        return stale;
+    }
 }
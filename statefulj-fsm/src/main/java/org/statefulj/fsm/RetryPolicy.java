@@ -0,0 +1,34 @@
+package org.statefulj.fsm;
+
+/**
+ * Decides whether, and after how long, the {@link FSM} retries an event that failed with a {@link RetryException}
+ */
+public interface RetryPolicy {
+
+    /**
+     * @param attempts
+     *            The number of attempts that have already failed
+     * @return true if another attempt may be made
+     */
+    boolean canAttempt(int attempts);
+
+    /**
+     * Determine how long to wait before the next attempt
+     *
+     * @param attempts
+     *            The number of attempts that have failed, including the one that raised the exception
+     * @param previousDelay
+     *            The delay returned for the previous failure, 0 on the first failure
+     * @param exception
+     *            The exception raised by the failed attempt
+     * @return The delay in milliseconds
+     */
+    long getDelay(int attempts, long previousDelay, RetryException exception);
+
+    /**
+     * @return The maximum number of attempts, -1 if they are unbounded or not limited by count
+     */
+    default int getRetryAttempts() {
+        return -1;
+    }
+}
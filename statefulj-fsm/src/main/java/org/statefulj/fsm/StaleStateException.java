@@ -1,13 +1,45 @@
 package org.statefulj.fsm;
 
+import org.statefulj.fsm.model.State;
+
 public class StaleStateException extends RetryException {
     private static final long serialVersionUID = -152318137915951158L;
 
+    private final transient Object stateful;
+
+    private final transient State<?> current;
+
     public StaleStateException() {
         super();
+        this.stateful = null;
+        this.current = null;
     }
 
     public StaleStateException(final String err) {
         super(err);
+        this.stateful = null;
+        this.current = null;
+    }
+
+    /**
+     * @param stateful
+     *            The Stateful Entity whose State was changed concurrently
+     * @param current
+     *            The State the Persister observed while rejecting the change, so the {@link FSM} can retry without reading it again
+     */
+    public StaleStateException(final String err, final Object stateful, final State<?> current) {
+        super(err);
+        this.stateful = stateful;
+        this.current = current;
+    }
+
+    /**
+     * @param stateful
+     *            The Stateful Entity the event is processed for
+     * @return The State observed by the Persister, or null if it wasn't observed or belongs to another Stateful Entity
+     */
+    @SuppressWarnings("unchecked")
+    public <T> State<T> getCurrent(final T stateful) {
+        return ((this.stateful != null) && (this.stateful == stateful)) ? (State<T>) current : null;
     }
 }
@@ -0,0 +1,132 @@
+package org.statefulj.fsm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Registry of threads waiting for a Stateful Entity to change State. Persisters signal the key of a Stateful Entity once its State has changed and every thread
+ * waiting on that key is woken up. Keys are compared with equals, or by identity if the monitor is created with byIdentity set. Signaling a key nobody waits on
+ * costs a single map lookup. Waiting parks on a {@link Condition} rather than a monitor, so a waiting virtual thread releases its carrier
+ */
+public class StateChangeMonitor {
+    private final ConcurrentHashMap<Object, Signal> signals = new ConcurrentHashMap<>();
+    private final boolean byIdentity;
+
+    public StateChangeMonitor() {
+        this(false);
+    }
+
+    public StateChangeMonitor(final boolean byIdentity) {
+        this.byIdentity = byIdentity;
+    }
+
+    /**
+     * Wait for the key to be signaled. The waiter is registered before changed is evaluated, so a signal raised after changed returns false isn't lost
+     *
+     * @param key
+     *            The key of the Stateful Entity
+     * @param changed
+     *            Evaluated once registered; if it returns true the call returns immediately. May be null
+     * @param timeout
+     *            Maximum time to wait in milliseconds
+     * @return true if changed returned true or the key was signaled, false if the timeout elapsed
+     * @throws InterruptedException
+     *             if the waiting thread is interrupted
+     */
+    public boolean await(final Object key, final BooleanSupplier changed, final long timeout) throws InterruptedException {
+        final Object k = wrap(key);
+        final Signal signal = signals.compute(k, (ignored, existing) -> {
+            final Signal s = (existing == null) ? new Signal() : existing;
+            s.waiters++;
+            return s;
+        });
+
+        try {
+            final long generation;
+            signal.lock.lock();
+            try {
+                generation = signal.generation;
+            } finally {
+                signal.lock.unlock();
+            }
+
+            if ((changed != null) && changed.getAsBoolean()) {
+                return true;
+            }
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+            signal.lock.lock();
+            try {
+                while (signal.generation == generation) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = signal.changed.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                signal.lock.unlock();
+            }
+        } finally {
+            signals.computeIfPresent(k, (ignored, s) -> (--s.waiters == 0) ? null : s);
+        }
+    }
+
+    /**
+     * Wake up every thread waiting on the key
+     *
+     * @param key
+     *            The key of the Stateful Entity
+     */
+    public void signal(final Object key) {
+        if (signals.isEmpty()) {
+            return;
+        }
+        final Signal signal = signals.get(wrap(key));
+        if (signal != null) {
+            signal.lock.lock();
+            try {
+                signal.generation++;
+                signal.changed.signalAll();
+            } finally {
+                signal.lock.unlock();
+            }
+        }
+    }
+
+    public boolean hasWaiters() {
+        return !signals.isEmpty();
+    }
+
+    private Object wrap(final Object key) {
+        return byIdentity ? new IdentityKey(key) : key;
+    }
+
+    private static class Signal {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private int waiters;
+        private long generation;
+    }
+
+    static class IdentityKey {
+        private final Object key;
+
+        IdentityKey(final Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(key);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof IdentityKey) && (((IdentityKey) obj).key == key);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.statefulj.fsm;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * A pending change of a Stateful Entity from its current State to the next State, used to batch updates through {@link Persister#setCurrentAll(java.util.List)}
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class StateUpdate<T> {
+    private final T stateful;
+    private final State<T> current;
+    private final State<T> next;
+
+    public StateUpdate(final T stateful, final State<T> current, final State<T> next) {
+        this.stateful = stateful;
+        this.current = current;
+        this.next = next;
+    }
+
+    public T getStateful() {
+        return stateful;
+    }
+
+    public State<T> getCurrent() {
+        return current;
+    }
+
+    public State<T> getNext() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return "StateUpdate[stateful=" + stateful + ", current=" + current.getName() + ", next=" + next.getName() + "]";
+    }
+}
@@ -3,9 +3,19 @@ package org.statefulj.fsm;
 public class WaitAndRetryException extends RetryException {
     private static final long serialVersionUID = 4257475898400867019L;
     private int wait;
+    private final boolean signaled;
 
     public WaitAndRetryException(final int wait) {
+        this(wait, false);
+    }
+
+    /**
+     * @param signaled
+     *            Whether a {@link NotifyingPersister} signaled that the Stateful Entity changed State, in which case the event is retried without delay
+     */
+    public WaitAndRetryException(final int wait, final boolean signaled) {
         this.wait = wait;
+        this.signaled = signaled;
     }
 
     public int getWait() {
@@ -15,4 +25,8 @@ public class WaitAndRetryException extends RetryException {
     public void setWait(final int wait) {
         this.wait = wait;
     }
+
+    public boolean isSignaled() {
+        return signaled;
+    }
 }
@@ -0,0 +1,109 @@
+package org.statefulj.fsm.model.impl;
+
+import java.util.List;
+import java.util.Map;
+
+import org.statefulj.fsm.model.Action;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.Transition;
+
+/**
+ * A State of an {@link org.statefulj.fsm.FSMDefinition}. Its Transitions are held in an array indexed by event id
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CompiledStateImpl<T> implements State<T> {
+    private final int id;
+    private final String name;
+    private final boolean isEndState;
+    private final boolean isBlocking;
+    private final Map<String, Integer> eventIds;
+    private final List<String> events;
+    private final Transition<T>[] transitions;
+
+    /**
+     * @param eventIds
+     *            Event ids by event name
+     * @param events
+     *            Event names by event id
+     * @param transitions
+     *            Transitions by event id, filled in by the definition once all the States are built
+     */
+    public CompiledStateImpl(final int id, final String name, final boolean isEndState, final boolean isBlocking, final Map<String, Integer> eventIds, final List<String> events,
+            final Transition<T>[] transitions) {
+        this.id = id;
+        this.name = name;
+        this.isEndState = isEndState;
+        this.isBlocking = isBlocking;
+        this.eventIds = eventIds;
+        this.events = events;
+        this.transitions = transitions;
+    }
+
+    /**
+     * @return The events of the definition, indexed by event id
+     */
+    public List<String> getEvents() {
+        return events;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Transition<T> getTransition(final String event) {
+        final Integer eventId = eventIds.get(event);
+        return (eventId == null) ? null : transitions[eventId];
+    }
+
+    public Transition<T> getTransition(final int eventId) {
+        return ((eventId < 0) || (eventId >= transitions.length)) ? null : transitions[eventId];
+    }
+
+    @Override
+    public boolean isEndState() {
+        return isEndState;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return isBlocking;
+    }
+
+    @Override
+    public void setBlocking(final boolean isBlocking) {
+        throw new UnsupportedOperationException("Compiled State " + name + " is immutable");
+    }
+
+    @Override
+    public void removeTransition(final String event) {
+        throw new UnsupportedOperationException("Compiled State " + name + " is immutable");
+    }
+
+    @Override
+    public void addTransition(final String event, final Transition<T> transition) {
+        throw new UnsupportedOperationException("Compiled State " + name + " is immutable");
+    }
+
+    @Override
+    public void addTransition(final String event, final State<T> next, final Action<T> action) {
+        throw new UnsupportedOperationException("Compiled State " + name + " is immutable");
+    }
+
+    @Override
+    public void addTransition(final String event, final State<T> next) {
+        throw new UnsupportedOperationException("Compiled State " + name + " is immutable");
+    }
+
+    @Override
+    public String toString() {
+        return "State[name=" + this.name + ", isEndState=" + this.isEndState + ", isBlocking=" + this.isBlocking + "]";
+    }
+}
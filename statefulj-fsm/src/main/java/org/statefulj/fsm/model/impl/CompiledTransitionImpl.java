@@ -0,0 +1,47 @@
+package org.statefulj.fsm.model.impl;
+
+import java.util.Map;
+
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.StateActionPair;
+import org.statefulj.fsm.model.Transition;
+
+/**
+ * Wraps a non-deterministic Transition so that the State it selects is mapped onto the compiled State of an {@link org.statefulj.fsm.FSMDefinition}
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class CompiledTransitionImpl<T> implements Transition<T> {
+    private final Map<String, State<T>> states;
+    private final Transition<T> transition;
+
+    /**
+     * @param states
+     *            The compiled States by name
+     */
+    public CompiledTransitionImpl(final Map<String, State<T>> states, final Transition<T> transition) {
+        this.states = states;
+        this.transition = transition;
+    }
+
+    @Override
+    public StateActionPair<T> getStateActionPair(final T stateful) throws RetryException {
+        final StateActionPair<T> pair = transition.getStateActionPair(stateful);
+        final State<T> state = states.get(pair.getState().getName());
+        if (state == null) {
+            throw new IllegalStateException("State " + pair.getState().getName() + " is not part of the definition");
+        }
+        return (state == pair.getState()) ? pair : new StateActionPairImpl<>(state, pair.getAction());
+    }
+
+    public Transition<T> getTransition() {
+        return transition;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledTransition[" + transition + "]";
+    }
+}
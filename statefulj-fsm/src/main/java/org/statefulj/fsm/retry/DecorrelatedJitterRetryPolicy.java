@@ -0,0 +1,64 @@
+package org.statefulj.fsm.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.RetryPolicy;
+import org.statefulj.fsm.WaitAndRetryException;
+
+/**
+ * Draws each delay uniformly from [baseDelay, previousDelay * 3], capped at the max delay. Successive delays grow like exponential backoff but are decorrelated
+ * from those of other callers. The wait of a {@link WaitAndRetryException} is always honored as a lower bound
+ */
+public class DecorrelatedJitterRetryPolicy implements RetryPolicy {
+    private final int retryAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    /**
+     * @param retryAttempts
+     *            Maximum number of attempts, -1 to retry forever
+     * @param baseDelay
+     *            Minimum delay in milliseconds
+     * @param maxDelay
+     *            Upper bound of the delay in milliseconds
+     */
+    public DecorrelatedJitterRetryPolicy(final int retryAttempts, final long baseDelay, final long maxDelay) {
+        if ((baseDelay < 0) || (maxDelay < baseDelay)) {
+            throw new IllegalArgumentException("Invalid delays: baseDelay=" + baseDelay + ", maxDelay=" + maxDelay);
+        }
+        this.retryAttempts = retryAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public boolean canAttempt(final int attempts) {
+        return (retryAttempts == -1) || (attempts < retryAttempts);
+    }
+
+    @Override
+    public long getDelay(final int attempts, final long previousDelay, final RetryException exception) {
+        final long upper = Math.min(Math.max(previousDelay, baseDelay) * 3, maxDelay);
+        final long delay = (upper > baseDelay) ? ThreadLocalRandom.current().nextLong(baseDelay, upper + 1) : upper;
+        return Math.max(delay, ExponentialBackoffRetryPolicy.minimumWait(exception));
+    }
+
+    @Override
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "DecorrelatedJitterRetryPolicy[retryAttempts=" + retryAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + "]";
+    }
+}
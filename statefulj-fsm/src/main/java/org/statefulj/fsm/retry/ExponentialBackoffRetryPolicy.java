@@ -0,0 +1,81 @@
+package org.statefulj.fsm.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.RetryPolicy;
+import org.statefulj.fsm.WaitAndRetryException;
+
+/**
+ * Doubles the delay on every failed attempt, starting at the base delay and capped at the max delay. With jitter enabled the delay is drawn uniformly from
+ * [0, delay] ("full jitter") so that competing callers don't retry in lockstep. The wait of a {@link WaitAndRetryException} is always honored as a lower bound
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+    private final int retryAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final boolean jitter;
+
+    public ExponentialBackoffRetryPolicy(final int retryAttempts, final long baseDelay, final long maxDelay) {
+        this(retryAttempts, baseDelay, maxDelay, true);
+    }
+
+    /**
+     * @param retryAttempts
+     *            Maximum number of attempts, -1 to retry forever
+     * @param baseDelay
+     *            Delay in milliseconds after the first failure
+     * @param maxDelay
+     *            Upper bound of the delay in milliseconds
+     * @param jitter
+     *            Whether to randomize the delay
+     */
+    public ExponentialBackoffRetryPolicy(final int retryAttempts, final long baseDelay, final long maxDelay, final boolean jitter) {
+        if ((baseDelay < 0) || (maxDelay < baseDelay)) {
+            throw new IllegalArgumentException("Invalid delays: baseDelay=" + baseDelay + ", maxDelay=" + maxDelay);
+        }
+        this.retryAttempts = retryAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public boolean canAttempt(final int attempts) {
+        return (retryAttempts == -1) || (attempts < retryAttempts);
+    }
+
+    @Override
+    public long getDelay(final int attempts, final long previousDelay, final RetryException exception) {
+        final int shift = Math.min(Math.max(attempts - 1, 0), 62);
+        final long ceiling = ((baseDelay << shift) >>> shift == baseDelay) ? Math.min(baseDelay << shift, maxDelay) : maxDelay;
+        final long delay = (jitter && (ceiling > 0)) ? ThreadLocalRandom.current().nextLong(ceiling + 1) : ceiling;
+        return Math.max(delay, minimumWait(exception));
+    }
+
+    @Override
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public boolean isJitter() {
+        return jitter;
+    }
+
+    static long minimumWait(final RetryException exception) {
+        return WaitAndRetryException.class.isInstance(exception) ? ((WaitAndRetryException) exception).getWait() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ExponentialBackoffRetryPolicy[retryAttempts=" + retryAttempts + ", baseDelay=" + baseDelay + ", maxDelay=" + maxDelay + ", jitter=" + jitter + "]";
+    }
+}
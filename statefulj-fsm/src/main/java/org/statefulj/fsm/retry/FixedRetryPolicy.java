@@ -0,0 +1,56 @@
+package org.statefulj.fsm.retry;
+
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.RetryPolicy;
+import org.statefulj.fsm.WaitAndRetryException;
+
+/**
+ * Retries a fixed number of times. A {@link WaitAndRetryException} waits for its own interval, any other {@link RetryException} waits for the fixed delay
+ */
+public class FixedRetryPolicy implements RetryPolicy {
+    private final int retryAttempts;
+    private final long delay;
+
+    /**
+     * @param retryAttempts
+     *            Maximum number of attempts, -1 to retry forever
+     */
+    public FixedRetryPolicy(final int retryAttempts) {
+        this(retryAttempts, 0);
+    }
+
+    /**
+     * @param retryAttempts
+     *            Maximum number of attempts, -1 to retry forever
+     * @param delay
+     *            Delay in milliseconds before retrying after a {@link RetryException} that doesn't specify a wait
+     */
+    public FixedRetryPolicy(final int retryAttempts, final long delay) {
+        this.retryAttempts = retryAttempts;
+        this.delay = delay;
+    }
+
+    @Override
+    public boolean canAttempt(final int attempts) {
+        return (retryAttempts == -1) || (attempts < retryAttempts);
+    }
+
+    @Override
+    public long getDelay(final int attempts, final long previousDelay, final RetryException exception) {
+        return WaitAndRetryException.class.isInstance(exception) ? ((WaitAndRetryException) exception).getWait() : delay;
+    }
+
+    @Override
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedRetryPolicy[retryAttempts=" + retryAttempts + ", delay=" + delay + "]";
+    }
+}
@@ -2,20 +2,32 @@ package org.statefulj.persistence.memory;
 
 import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.statefulj.common.utils.ReflectionUtils;
-import org.statefulj.fsm.Persister;
+import org.statefulj.common.utils.StripedLock;
+import org.statefulj.fsm.FSMDefinition;
+import org.statefulj.fsm.NotifyingPersister;
 import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.StateChangeMonitor;
 import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.CompiledStateImpl;
 
-public class MemoryPersisterImpl<T> implements Persister<T> {
-    private final Map<String, State<T>> states = new HashMap<>();
+public class MemoryPersisterImpl<T> implements NotifyingPersister<T> {
+    private volatile Map<String, State<T>> states = Collections.emptyMap();
+    private final StateChangeMonitor monitor = new StateChangeMonitor(true);
+    private final StripedLock locks = new StripedLock();
     private State<T> start;
     private String stateFieldName;
     private volatile Field stateField;
+    private volatile boolean lockFree;
+    private volatile StateFieldUpdater updater;
+    private State<T>[] byId;
+    private volatile Boolean idField;
 
     public MemoryPersisterImpl(final Collection<State<T>> states, final State<T> start) {
         setStart(start);
@@ -27,6 +39,21 @@ public class MemoryPersisterImpl<T> implements Persister<T> {
         this.stateFieldName = stateFieldName;
     }
 
+    /**
+     * States are looked up by position in the definition instead of by name. An int or Integer State field holds the id of the State; a String State field holds
+     * the name of the State, which is looked up by name
+     */
+    @SuppressWarnings("unchecked")
+    public MemoryPersisterImpl(final FSMDefinition<T> definition) {
+        this(definition.getStates(), definition.getStart());
+        this.byId = definition.getStates().toArray(new State[definition.getStateCount()]);
+    }
+
+    public MemoryPersisterImpl(final FSMDefinition<T> definition, final String stateFieldName) {
+        this(definition);
+        this.stateFieldName = stateFieldName;
+    }
+
     public MemoryPersisterImpl(final T stateful, final List<State<T>> states, final State<T> start) {
         this(states, start);
         this.setCurrent(stateful, start);
@@ -37,12 +64,16 @@ public class MemoryPersisterImpl<T> implements Persister<T> {
         this.setCurrent(stateful, start);
     }
 
-    public synchronized Collection<State<T>> getStates() {
+    public Collection<State<T>> getStates() {
         return states.values();
     }
 
     public synchronized State<T> addState(final State<T> state) {
-        return states.put(state.getName(), state);
+        checkMutable();
+        final Map<String, State<T>> copy = new HashMap<>(this.states);
+        final State<T> previous = copy.put(state.getName(), state);
+        this.states = Collections.unmodifiableMap(copy);
+        return previous;
     }
 
     public State<T> removeState(final State<T> state) {
@@ -50,15 +81,36 @@ public class MemoryPersisterImpl<T> implements Persister<T> {
     }
 
     public synchronized State<T> removeState(final String name) {
-        return states.remove(name);
+        checkMutable();
+        final Map<String, State<T>> copy = new HashMap<>(this.states);
+        final State<T> removed = copy.remove(name);
+        this.states = Collections.unmodifiableMap(copy);
+        return removed;
     }
 
     public synchronized void setStates(final Collection<State<T>> states) {
-        this.states.clear();
+        final Map<String, State<T>> copy = new HashMap<>();
 
         for (final State<T> state : states) {
-            this.states.put(state.getName(), state);
+            copy.put(state.getName(), state);
         }
+        this.states = Collections.unmodifiableMap(copy);
+    }
+
+    public boolean isLockFree() {
+        return lockFree;
+    }
+
+    /**
+     * In lock-free mode the State field is read with volatile semantics and updated with a compare-and-set instead of synchronizing on the Stateful Entity. Falls
+     * back to synchronization if the field can't be updated atomically: on Java 8 the field must be volatile and public in a public class, on Java 21 and
+     * later it must not be final
+     *
+     * @param lockFree
+     *            Whether to use lock-free updates
+     */
+    public void setLockFree(final boolean lockFree) {
+        this.lockFree = lockFree;
     }
 
     public State<T> getStart() {
@@ -80,33 +132,154 @@ public class MemoryPersisterImpl<T> implements Persister<T> {
     @Override
     public State<T> getCurrent(final T stateful) {
         try {
-            final String key = (String) getStateField(stateful).get(stateful);
-            final State<T> state = (key != null) ? states.get(key) : null;
-            return (state != null) ? state : this.start;
+            final StateFieldUpdater updater = getUpdater(stateful);
+            final Object key = (updater != null) ? updater.get(stateful) : getStateField(stateful).get(stateful);
+            return toState(key);
         } catch (final Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     public void setCurrent(final T stateful, final State<T> current) {
-        synchronized (stateful) {
-            try {
-                getStateField(stateful).set(stateful, current.getName());
-            } catch (final Exception e) {
-                throw new RuntimeException(e);
+        final StateFieldUpdater updater = getUpdater(stateful);
+        if (updater != null) {
+            Object previous;
+            do {
+                previous = updater.get(stateful);
+            } while (!updater.compareAndSet(stateful, previous, toKey(stateful, current)));
+
+            if (!toKey(stateful, current).equals(previous)) {
+                monitor.signal(stateful);
             }
+            return;
+        }
+
+        boolean changed;
+        final Lock lock = locks.get(stateful);
+        lock.lock();
+        try {
+            final Field field = getStateField(stateful);
+            final Object key = toKey(stateful, current);
+            changed = !key.equals(field.get(stateful));
+            field.set(stateful, key);
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+        if (changed) {
+            monitor.signal(stateful);
         }
     }
 
     @Override
     public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
-        synchronized (stateful) {
-            if (this.getCurrent(stateful).equals(current)) {
+        final StateFieldUpdater updater = getUpdater(stateful);
+        if (updater != null) {
+            Object value;
+            do {
+                value = updater.get(stateful);
+                final State<T> actual = toState(value);
+                if (!actual.equals(current)) {
+                    throw new StaleStateException(null, stateful, actual);
+                }
+            } while (!updater.compareAndSet(stateful, value, toKey(stateful, next)));
+
+            if (!current.getName().equals(next.getName())) {
+                monitor.signal(stateful);
+            }
+            return;
+        }
+
+        final Lock lock = locks.get(stateful);
+        lock.lock();
+        try {
+            final State<T> actual = this.getCurrent(stateful);
+            if (actual.equals(current)) {
                 this.setCurrent(stateful, next);
             } else {
-                throw new StaleStateException();
+                throw new StaleStateException(null, stateful, actual);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitChange(final T stateful, final State<T> current, final long timeout) throws InterruptedException {
+        if (getUpdater(stateful) != null) {
+            return monitor.await(stateful, () -> !this.getCurrent(stateful).equals(current), timeout);
+        }
+        return monitor.await(stateful, () -> {
+            final Lock lock = locks.get(stateful);
+            lock.lock();
+            try {
+                return !this.getCurrent(stateful).equals(current);
+            } finally {
+                lock.unlock();
+            }
+        }, timeout);
+    }
+
+    private void checkMutable() {
+        if (byId != null) {
+            throw new UnsupportedOperationException("The States of a compiled FSMDefinition can't be changed");
+        }
+    }
+
+    private State<T> toState(final Object key) {
+        if (key == null) {
+            return this.start;
+        }
+        final State<T>[] byId = this.byId;
+        if ((byId != null) && (key instanceof Integer)) {
+            return byId[(Integer) key];
+        }
+        final State<T> state = states.get(key);
+        return (state != null) ? state : this.start;
+    }
+
+    private Object toKey(final T stateful, final State<T> state) {
+        if ((byId != null) && isIdField(stateful)) {
+            if (state instanceof CompiledStateImpl) {
+                final int id = ((CompiledStateImpl<T>) state).getId();
+                if ((id < byId.length) && (byId[id] == state)) {
+                    return id;
+                }
+            }
+            for (int id = 0; id < byId.length; id++) {
+                if (byId[id].getName().equals(state.getName())) {
+                    return id;
+                }
+            }
+            throw new RuntimeException("Unknown State " + state.getName());
+        }
+        return state.getName();
+    }
+
+    private boolean isIdField(final T stateful) {
+        Boolean idField = this.idField;
+        if (idField == null) {
+            final Class<?> type = getStateField(stateful).getType();
+            idField = (type == int.class) || (type == Integer.class);
+            this.idField = idField;
+        }
+        return idField;
+    }
+
+    private StateFieldUpdater getUpdater(final T stateful) {
+        if (!lockFree) {
+            return null;
+        }
+        StateFieldUpdater updater = this.updater;
+        if (updater == null) {
+            updater = StateFieldUpdater.create(getStateField(stateful));
+            if (updater == null) {
+                return null;
             }
+            this.updater = updater;
         }
+        return updater;
     }
 
     private Field getStateField(final T stateful) {
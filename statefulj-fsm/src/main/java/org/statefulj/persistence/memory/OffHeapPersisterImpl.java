@@ -0,0 +1,136 @@
+package org.statefulj.persistence.memory;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.statefulj.common.utils.ReflectionUtils;
+import org.statefulj.fsm.FSMDefinition;
+import org.statefulj.fsm.Persister;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.model.State;
+
+/**
+ * Keeps the State of the Stateful Entities in an {@link OffHeapStateStore}, keyed by a long id, so the Stateful Entities don't need a State field and don't
+ * have to stay on the heap. A Stateful Entity is in the start State until it is first transitioned. The code of a State is its position in the list of States
+ */
+public class OffHeapPersisterImpl<T> implements Persister<T>, Closeable {
+
+    private final OffHeapStateStore store;
+
+    private final ToLongFunction<T> ids;
+
+    private final State<T> start;
+
+    private final State<T>[] byCode;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /**
+     * @param states
+     *            The States, in code order
+     * @param start
+     *            The start State
+     * @param ids
+     *            Returns the id of a Stateful Entity
+     * @param capacity
+     *            Maximum number of Stateful Entities
+     */
+    @SuppressWarnings("unchecked")
+    public OffHeapPersisterImpl(final List<State<T>> states, final State<T> start, final ToLongFunction<T> ids, final long capacity) {
+        this.start = start;
+        this.ids = ids;
+        this.byCode = states.toArray(new State[states.size()]);
+        for (int code = 0; code < this.byCode.length; code++) {
+            this.codes.put(this.byCode[code].getName(), code);
+        }
+        if (!this.codes.containsKey(start.getName())) {
+            throw new RuntimeException(String.format("Start State %s is not one of the States", start.getName()));
+        }
+        this.store = new OffHeapStateStore(capacity);
+    }
+
+    /**
+     * @param idFieldName
+     *            Name of the long id field of the Stateful Entity
+     */
+    public OffHeapPersisterImpl(final List<State<T>> states, final State<T> start, final Class<T> clazz, final String idFieldName, final long capacity) {
+        this(states, start, idGetter(clazz, idFieldName), capacity);
+    }
+
+    public OffHeapPersisterImpl(final FSMDefinition<T> definition, final ToLongFunction<T> ids, final long capacity) {
+        this(definition.getStates(), definition.getStart(), ids, capacity);
+    }
+
+    @Override
+    public State<T> getCurrent(final T stateful) {
+        return toState(store.get(ids.applyAsLong(stateful)));
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
+        final long id = ids.applyAsLong(stateful);
+        final int nextCode = code(next);
+        int code;
+        do {
+            code = store.get(id);
+            final State<T> actual = toState(code);
+            if (!actual.equals(current)) {
+                throw new StaleStateException(null, stateful, actual);
+            }
+        } while (!store.compareAndSet(id, code, nextCode));
+    }
+
+    /**
+     * Set the State without checking the current State
+     */
+    public void setCurrent(final T stateful, final State<T> current) {
+        store.set(ids.applyAsLong(stateful), code(current));
+    }
+
+    public State<T> getStart() {
+        return start;
+    }
+
+    public OffHeapStateStore getStore() {
+        return store;
+    }
+
+    /**
+     * Frees the off-heap memory. Only call it once no event is being handled by the FSMs using this Persister
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    private State<T> toState(final int code) {
+        return (code == OffHeapStateStore.NONE) ? start : byCode[code];
+    }
+
+    private int code(final State<T> state) {
+        final Integer code = codes.get(state.getName());
+        if (code == null) {
+            throw new RuntimeException(String.format("Unknown State %s", state.getName()));
+        }
+        return code;
+    }
+
+    private static <T> ToLongFunction<T> idGetter(final Class<T> clazz, final String idFieldName) {
+        final Field field = ReflectionUtils.getField(clazz, idFieldName);
+        if (field == null) {
+            throw new RuntimeException(String.format("No id field %s in %s", idFieldName, clazz.getName()));
+        }
+        field.setAccessible(true);
+        return stateful -> {
+            try {
+                return ((Number) field.get(stateful)).longValue();
+            } catch (final IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package org.statefulj.persistence.memory;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed capacity hash table of long ids to int State codes, allocated outside of the heap. Slots are claimed and updated with compare-and-set, so the table
+ * is lock-free. Ids are never removed. {@link Long#MIN_VALUE} marks an empty slot and can't be used as an id.
+ * <p>
+ * Each slot takes 16 bytes; the table is sized to keep the load factor under 0.75 at full capacity, so 50 million ids take 1GB. The memory is released by
+ * {@link #close()}. As with any raw native memory, the caller must make sure that no access is in flight or started while the store is being closed: accesses
+ * aren't guarded by a lock, an access that races with close may touch the freed memory. Accesses that follow close fail with an {@link IllegalStateException}.
+ */
+public class OffHeapStateStore implements Closeable {
+
+    /**
+     * Code returned for an id without a State
+     */
+    public static final int NONE = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int STATE_OFFSET = 8;
+
+    private final long capacity;
+
+    private final long mask;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile long address;
+
+    /**
+     * @param capacity
+     *            Maximum number of ids
+     */
+    public OffHeapStateStore(final long capacity) {
+        if (!UnsafeMemory.isAvailable()) {
+            throw new UnsupportedOperationException("sun.misc.Unsafe is required for off-heap State storage");
+        }
+        final long slots = Long.highestOneBit(Math.max(2, ((capacity * 4) / 3) + 1) - 1) << 1;
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.address = UnsafeMemory.allocateMemory(slots * SLOT_SIZE);
+        for (long slot = 0; slot < slots; slot++) {
+            UnsafeMemory.putLong(address + (slot * SLOT_SIZE), EMPTY);
+            UnsafeMemory.putInt(address + (slot * SLOT_SIZE) + STATE_OFFSET, NONE);
+        }
+        UnsafeMemory.storeFence();
+    }
+
+    /**
+     * @return The State code of the id, {@link #NONE} if it has none
+     */
+    public int get(final long id) {
+        final long slot = find(id, false);
+        return (slot < 0) ? NONE : UnsafeMemory.getIntVolatile(slot + STATE_OFFSET);
+    }
+
+    /**
+     * Set the State code of the id if it is the expected one
+     *
+     * @param expected
+     *            The expected State code, {@link #NONE} if the id is expected to have no State
+     * @return false if the id doesn't have the expected State code
+     */
+    public boolean compareAndSet(final long id, final int expected, final int next) {
+        return UnsafeMemory.compareAndSwapInt(find(id, true) + STATE_OFFSET, expected, next);
+    }
+
+    public void set(final long id, final int code) {
+        UnsafeMemory.putIntVolatile(find(id, true) + STATE_OFFSET, code);
+    }
+
+    /**
+     * @return The number of ids in the table
+     */
+    public long size() {
+        return size.get();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Release the memory. Must not be called while other threads may still access the store
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            final long base = address;
+            address = 0;
+            UnsafeMemory.freeMemory(base);
+        }
+    }
+
+    /**
+     * Linear probe for the slot of the id
+     *
+     * @param claim
+     *            true to claim an empty slot if the id isn't in the table
+     * @return The address of the slot, -1 if the id isn't in the table and claim is false
+     */
+    private long find(final long id, final boolean claim) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE can't be used as an id");
+        }
+        final long base = address;
+        if (base == 0) {
+            throw new IllegalStateException("The store is closed");
+        }
+
+        long slot = mix(id) & mask;
+        while (true) {
+            final long slotAddress = base + (slot * SLOT_SIZE);
+            final long key = UnsafeMemory.getLongVolatile(slotAddress);
+            if (key == id) {
+                return slotAddress;
+            }
+            if (key == EMPTY) {
+                if (!claim) {
+                    return -1;
+                }
+                if (size.get() >= capacity) {
+                    throw new IllegalStateException(String.format("The store is full, capacity=%d", capacity));
+                }
+                if (UnsafeMemory.compareAndSwapLong(slotAddress, EMPTY, id)) {
+                    size.incrementAndGet();
+                    return slotAddress;
+                }
+                // Lost the slot to another id, or to the same id, check again
+                //
+                continue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static long mix(final long id) {
+        // Finalizer of MurmurHash3, spreads sequential ids across the table
+        //
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1a85ec5L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
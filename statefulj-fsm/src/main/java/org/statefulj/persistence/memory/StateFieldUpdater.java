@@ -0,0 +1,49 @@
+package org.statefulj.persistence.memory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Volatile reads and compare-and-set of an Object field of an arbitrary class, through an {@link AtomicReferenceFieldUpdater}. The updater requires the field
+ * to be volatile and accessible from this class, i.e. public in a public class. The Java 21 variant uses a VarHandle instead, which supports any non final
+ * field
+ */
+class StateFieldUpdater {
+
+    private final AtomicReferenceFieldUpdater<Object, Object> updater;
+
+    private StateFieldUpdater(final AtomicReferenceFieldUpdater<Object, Object> updater) {
+        this.updater = updater;
+    }
+
+    /**
+     * @return The updater of the field, null if the field can't be updated atomically
+     */
+    @SuppressWarnings("unchecked")
+    static StateFieldUpdater create(final Field field) {
+        if (field.getType().isPrimitive() || Modifier.isStatic(field.getModifiers()) || !Modifier.isVolatile(field.getModifiers())) {
+            return null;
+        }
+        try {
+            return new StateFieldUpdater((AtomicReferenceFieldUpdater<Object, Object>) AtomicReferenceFieldUpdater.newUpdater(field.getDeclaringClass(),
+                    field.getType(), field.getName()));
+        } catch (final RuntimeException e) {
+            // Not accessible from here
+            //
+            return null;
+        }
+    }
+
+    Object get(final Object obj) {
+        return updater.get(obj);
+    }
+
+    void set(final Object obj, final Object value) {
+        updater.set(obj, value);
+    }
+
+    boolean compareAndSet(final Object obj, final Object expect, final Object update) {
+        return updater.compareAndSet(obj, expect, update);
+    }
+}
@@ -0,0 +1,170 @@
+package org.statefulj.persistence.memory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The native memory accesses of sun.misc.Unsafe used by the {@link OffHeapStateStore}. Unsafe is looked up reflectively and called through constant
+ * {@link MethodHandle}s, which the JIT inlines, so the proprietary API is referenced in this class only and never by name at compile time
+ */
+final class UnsafeMemory {
+    private static final Logger logger = LoggerFactory.getLogger(UnsafeMemory.class);
+
+    private static final MethodHandle ALLOCATE_MEMORY;
+    private static final MethodHandle FREE_MEMORY;
+    private static final MethodHandle PUT_LONG;
+    private static final MethodHandle PUT_INT;
+    private static final MethodHandle STORE_FENCE;
+    private static final MethodHandle GET_INT_VOLATILE;
+    private static final MethodHandle PUT_INT_VOLATILE;
+    private static final MethodHandle COMPARE_AND_SWAP_INT;
+    private static final MethodHandle GET_LONG_VOLATILE;
+    private static final MethodHandle COMPARE_AND_SWAP_LONG;
+
+    static {
+        MethodHandle allocateMemory = null;
+        MethodHandle freeMemory = null;
+        MethodHandle putLong = null;
+        MethodHandle putInt = null;
+        MethodHandle storeFence = null;
+        MethodHandle getIntVolatile = null;
+        MethodHandle putIntVolatile = null;
+        MethodHandle compareAndSwapInt = null;
+        MethodHandle getLongVolatile = null;
+        MethodHandle compareAndSwapLong = null;
+        try {
+            final Class<?> type = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = type.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            allocateMemory = lookup.findVirtual(type, "allocateMemory", MethodType.methodType(long.class, long.class)).bindTo(unsafe);
+            freeMemory = lookup.findVirtual(type, "freeMemory", MethodType.methodType(void.class, long.class)).bindTo(unsafe);
+            putLong = lookup.findVirtual(type, "putLong", MethodType.methodType(void.class, long.class, long.class)).bindTo(unsafe);
+            putInt = lookup.findVirtual(type, "putInt", MethodType.methodType(void.class, long.class, int.class)).bindTo(unsafe);
+            storeFence = lookup.findVirtual(type, "storeFence", MethodType.methodType(void.class)).bindTo(unsafe);
+            getIntVolatile = lookup.findVirtual(type, "getIntVolatile", MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+            putIntVolatile = lookup.findVirtual(type, "putIntVolatile", MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+            compareAndSwapInt = lookup.findVirtual(type, "compareAndSwapInt", MethodType.methodType(boolean.class, Object.class, long.class, int.class, int.class))
+                    .bindTo(unsafe);
+            getLongVolatile = lookup.findVirtual(type, "getLongVolatile", MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+            compareAndSwapLong = lookup.findVirtual(type, "compareAndSwapLong", MethodType.methodType(boolean.class, Object.class, long.class, long.class, long.class))
+                    .bindTo(unsafe);
+        } catch (final Exception e) {
+            logger.warn("sun.misc.Unsafe is not available, off-heap State storage is disabled");
+            allocateMemory = null;
+        }
+        ALLOCATE_MEMORY = allocateMemory;
+        FREE_MEMORY = freeMemory;
+        PUT_LONG = putLong;
+        PUT_INT = putInt;
+        STORE_FENCE = storeFence;
+        GET_INT_VOLATILE = getIntVolatile;
+        PUT_INT_VOLATILE = putIntVolatile;
+        COMPARE_AND_SWAP_INT = compareAndSwapInt;
+        GET_LONG_VOLATILE = getLongVolatile;
+        COMPARE_AND_SWAP_LONG = compareAndSwapLong;
+    }
+
+    private UnsafeMemory() {
+    }
+
+    static boolean isAvailable() {
+        return ALLOCATE_MEMORY != null;
+    }
+
+    static long allocateMemory(final long bytes) {
+        try {
+            return (long) ALLOCATE_MEMORY.invokeExact(bytes);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void freeMemory(final long address) {
+        try {
+            FREE_MEMORY.invokeExact(address);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void putLong(final long address, final long value) {
+        try {
+            PUT_LONG.invokeExact(address, value);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void putInt(final long address, final int value) {
+        try {
+            PUT_INT.invokeExact(address, value);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int getIntVolatile(final long address) {
+        try {
+            return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void putIntVolatile(final long address, final int value) {
+        try {
+            PUT_INT_VOLATILE.invokeExact((Object) null, address, value);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean compareAndSwapInt(final long address, final int expected, final int value) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_INT.invokeExact((Object) null, address, expected, value);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static long getLongVolatile(final long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static boolean compareAndSwapLong(final long address, final long expected, final long value) {
+        try {
+            return (boolean) COMPARE_AND_SWAP_LONG.invokeExact((Object) null, address, expected, value);
+        } catch (final Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(final Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new RuntimeException(e);
+    }
+}
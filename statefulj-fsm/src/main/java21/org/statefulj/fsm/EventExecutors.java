@@ -0,0 +1,42 @@
+package org.statefulj.fsm;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors used to dispatch events off the calling thread. This is the Java 21 variant, which starts a virtual thread per event. Persisters and the retry path
+ * park through {@link java.util.concurrent.locks.Lock}s, {@link java.util.concurrent.locks.Condition}s and {@link Thread#sleep(long)}, none of which pin the
+ * carrier thread
+ */
+public final class EventExecutors {
+
+    private EventExecutors() {
+    }
+
+    /**
+     * @param name
+     *            Prefix of the thread names
+     * @return A new executor starting a virtual thread per task
+     */
+    public static ExecutorService newEventExecutor(final String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+
+    /**
+     * @return The executor shared by all the harnesses that aren't given their own
+     */
+    public static ExecutorService getDefault() {
+        return DefaultHolder.EXECUTOR;
+    }
+
+    /**
+     * @return true if events are dispatched on virtual threads
+     */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    private static class DefaultHolder {
+        private static final ExecutorService EXECUTOR = newEventExecutor("statefulj-event");
+    }
+}
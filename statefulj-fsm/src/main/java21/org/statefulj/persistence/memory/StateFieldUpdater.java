@@ -0,0 +1,49 @@
+package org.statefulj.persistence.memory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Volatile reads and compare-and-set of an Object field of an arbitrary class. This is the Java 21 variant, which accesses the field through a
+ * {@link VarHandle}, so the field doesn't need to be volatile or public; it only needs to be non final and in a package open to statefulj
+ */
+class StateFieldUpdater {
+
+    private final VarHandle handle;
+
+    private StateFieldUpdater(final VarHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * @return The updater of the field, null if the field can't be updated atomically
+     */
+    static StateFieldUpdater create(final Field field) {
+        final int modifiers = field.getModifiers();
+        if (field.getType().isPrimitive() || Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+            return null;
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return new StateFieldUpdater(lookup.unreflectVarHandle(field));
+        } catch (final IllegalAccessException | RuntimeException e) {
+            // The package of the field isn't open to statefulj
+            //
+            return null;
+        }
+    }
+
+    Object get(final Object obj) {
+        return handle.getVolatile(obj);
+    }
+
+    void set(final Object obj, final Object value) {
+        handle.setVolatile(obj, value);
+    }
+
+    boolean compareAndSet(final Object obj, final Object expect, final Object update) {
+        return handle.compareAndSet(obj, expect, update);
+    }
+}
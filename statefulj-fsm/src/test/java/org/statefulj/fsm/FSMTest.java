@@ -1,8 +1,18 @@
 package org.statefulj.fsm;
 
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Assert;
@@ -12,7 +22,12 @@ import org.statefulj.fsm.model.Action;
 import org.statefulj.fsm.model.State;
 import org.statefulj.fsm.model.impl.StateActionPairImpl;
 import org.statefulj.fsm.model.impl.StateImpl;
+import org.statefulj.fsm.retry.DecorrelatedJitterRetryPolicy;
+import org.statefulj.fsm.retry.ExponentialBackoffRetryPolicy;
+import org.statefulj.fsm.retry.FixedRetryPolicy;
 import org.statefulj.persistence.memory.MemoryPersisterImpl;
+import org.statefulj.persistence.memory.OffHeapPersisterImpl;
+import org.statefulj.persistence.memory.OffHeapStateStore;
 
 @SuppressWarnings("unchecked")
 public class FSMTest {
@@ -26,6 +41,26 @@ public class FSMTest {
         String state;
     }
 
+    private static class IdState {
+        @org.statefulj.persistence.annotations.State
+        int state;
+    }
+
+    // Public with a volatile State field, so it can be updated lock-free on Java 8
+    //
+    public static class VolatileState {
+        @org.statefulj.persistence.annotations.State
+        public volatile String state;
+    }
+
+    private static class Device {
+        final long id;
+
+        Device(final long id) {
+            this.id = id;
+        }
+    }
+
     @Test
     public void testSimpleFSM() throws TooBusyException, RetryException {
 
@@ -236,4 +271,720 @@ public class FSMTest {
         final State<FirstState> state = fsm.onEvent(stateful, eventA);
         Assert.assertEquals(stateB, state);
     }
+
+    @Test
+    public void testCompiledDefinition() throws TooBusyException, RetryException {
+        final FirstState stateful = new FirstState();
+        final Action<FirstState> actionA = Mockito.mock(Action.class);
+        final String eventA = "eventA";
+        final String eventB = "eventB";
+
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final State<FirstState> stateC = new StateImpl<>("stateC", true);
+
+        stateA.addTransition(eventA, stateB, actionA);
+        stateB.addTransition(eventB, stateful1 -> new StateActionPairImpl<>(stateC, null));
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        final FSMDefinition<FirstState> definition = FSMDefinition.compile(states, stateA);
+        Assert.assertEquals(3, definition.getStateCount());
+        Assert.assertEquals(2, definition.getEventCount());
+        Assert.assertEquals("stateA", definition.getStart().getName());
+        Assert.assertNull(definition.getStart().getTransition("unknown"));
+
+        Assert.assertSame(definition.getEvents(), definition.getEvents());
+
+        final FSM<FirstState> fsm = new FSM<>("CompiledFSM", new MemoryPersisterImpl<>(definition), definition);
+
+        State<FirstState> current = fsm.onEvent(stateful, eventA);
+        Assert.assertSame(definition.getState("stateB"), current);
+        Mockito.verify(actionA).execute(stateful, eventA);
+
+        current = fsm.onEvent(stateful, definition.getEventId(eventB));
+        Assert.assertSame(definition.getState("stateC"), current);
+        Assert.assertTrue(current.isEndState());
+
+        // Changes to the source States are not visible to the compiled definition
+        //
+        stateA.removeTransition(eventA);
+        Assert.assertNotNull(definition.getStart().getTransition(eventA));
+    }
+
+    @Test
+    public void testCompiledDefinitionWithIdField() throws TooBusyException, RetryException {
+        final IdState stateful = new IdState();
+        final State<IdState> stateA = new StateImpl<>("stateA");
+        final State<IdState> stateB = new StateImpl<>("stateB");
+        stateA.addTransition("eventA", stateB);
+
+        final List<State<IdState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+
+        final FSMDefinition<IdState> definition = FSMDefinition.compile(states, stateA);
+        final MemoryPersisterImpl<IdState> persister = new MemoryPersisterImpl<>(definition);
+        final FSM<IdState> fsm = new FSM<>("IdFSM", persister, definition);
+
+        final State<IdState> current = fsm.onEvent(stateful, "eventA");
+        Assert.assertSame(definition.getState("stateB"), current);
+        Assert.assertEquals(definition.getStateId("stateB"), stateful.state);
+        Assert.assertSame(current, persister.getCurrent(stateful));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCompiledDefinitionIsImmutable() {
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+
+        FSMDefinition.compile(states, stateA).getStart().addTransition("eventA", stateA);
+    }
+
+    @Test
+    public void testAsyncTransitionOutOfBlocking() throws Exception {
+        final State<FirstState> stateA = new StateImpl<>("stateA", false, true);
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final String eventA = "eventA";
+        final String eventB = "eventB";
+        final FirstState stateful = new FirstState();
+
+        stateA.addTransition(eventB, stateB);
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("Async", persister, 1000, 10);
+
+        final CompletableFuture<State<FirstState>> future = fsm.onEventAsync(stateful, eventA);
+        Assert.assertFalse(future.isDone());
+
+        fsm.onEvent(stateful, eventB);
+        Assert.assertEquals(stateB, future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncTooBusy() throws InterruptedException {
+        final FirstState stateful = new FirstState();
+        final State<FirstState> stateA = new StateImpl<>("stateA", false, true);
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("TooBusy", persister, 3, 1);
+
+        try {
+            fsm.onEventAsync(stateful, "eventA").get();
+            Assert.fail("Expected TooBusyException");
+        } catch (final ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TooBusyException);
+        }
+    }
+
+    @Test
+    public void testRetryPolicy() throws TooBusyException {
+        final FirstState stateful = new FirstState();
+        final String eventA = "eventA";
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final MutableInt failures = new MutableInt(2);
+        stateA.addTransition(eventA, stateful1 -> {
+            if (failures.intValue() > 0) {
+                failures.decrement();
+                throw new RetryException();
+            }
+            return new StateActionPairImpl<>(stateB, null);
+        });
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+
+        final List<Long> delays = new LinkedList<>();
+        final RetryPolicy policy = new RetryPolicy() {
+
+            @Override
+            public boolean canAttempt(final int attempts) {
+                return attempts < 3;
+            }
+
+            @Override
+            public long getDelay(final int attempts, final long previousDelay, final RetryException exception) {
+                delays.add(previousDelay);
+                return attempts;
+            }
+        };
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("RetryPolicy", persister, policy);
+        Assert.assertEquals(-1, fsm.getRetryAttempts());
+
+        Assert.assertEquals(stateB, fsm.onEvent(stateful, eventA));
+        Assert.assertEquals(2, delays.size());
+        Assert.assertEquals(0L, delays.get(0).longValue());
+        Assert.assertEquals(1L, delays.get(1).longValue());
+
+        fsm.setRetryPolicy(new ExponentialBackoffRetryPolicy(5, 10, 100));
+        Assert.assertEquals(5, fsm.getRetryAttempts());
+    }
+
+    @Test
+    public void testBackoffRetryPolicies() {
+        final RetryException stale = new StaleStateException();
+        final RetryException wait = new WaitAndRetryException(500);
+
+        final RetryPolicy fixed = new FixedRetryPolicy(2, 10);
+        Assert.assertTrue(fixed.canAttempt(1));
+        Assert.assertFalse(fixed.canAttempt(2));
+        Assert.assertEquals(10, fixed.getDelay(1, 0, stale));
+        Assert.assertEquals(500, fixed.getDelay(1, 0, wait));
+
+        final RetryPolicy exponential = new ExponentialBackoffRetryPolicy(-1, 10, 100, false);
+        Assert.assertTrue(exponential.canAttempt(Integer.MAX_VALUE));
+        Assert.assertEquals(10, exponential.getDelay(1, 0, stale));
+        Assert.assertEquals(40, exponential.getDelay(3, 20, stale));
+        Assert.assertEquals(100, exponential.getDelay(64, 100, stale));
+        Assert.assertEquals(500, exponential.getDelay(1, 0, wait));
+
+        final RetryPolicy jittered = new ExponentialBackoffRetryPolicy(-1, 10, 100);
+        final RetryPolicy decorrelated = new DecorrelatedJitterRetryPolicy(-1, 10, 100);
+        long previous = 0;
+        for (int i = 1; i < 100; i++) {
+            final long delay = jittered.getDelay(i, 0, stale);
+            Assert.assertTrue((delay >= 0) && (delay <= 100));
+
+            final long next = decorrelated.getDelay(i, previous, stale);
+            Assert.assertTrue((next >= 10) && (next <= Math.min(Math.max(previous, 10) * 3, 100)));
+            previous = next;
+        }
+    }
+
+    @Test
+    public void testBackoffWithNotifyingPersister() throws Exception {
+        final FirstState stateful = new FirstState();
+        final String eventA = "eventA";
+        final String eventB = "eventB";
+        final State<FirstState> stateA = new StateImpl<>("stateA", false, true);
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final State<FirstState> stateC = new StateImpl<>("stateC");
+        stateA.addTransition(eventB, stateB);
+        stateB.addTransition(eventA, stateC);
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("Backoff", persister, new ExponentialBackoffRetryPolicy(3, 10000, 10000, false), 10000);
+        final List<Long> delays = new LinkedList<>();
+        fsm.addListener(new FSMListener<FirstState>() {
+
+            @Override
+            public void onRetry(final FirstState stateful, final String event, final int attempts, final long delay, final RetryException e) {
+                delays.add(delay);
+            }
+        });
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final long start = System.currentTimeMillis();
+            final Future<State<FirstState>> future = executor.submit(() -> fsm.onEvent(stateful, eventA));
+            Thread.sleep(100);
+            fsm.onEvent(stateful, eventB);
+
+            // The signal out of the blocking State is retried immediately instead of after the 10s backoff
+            //
+            Assert.assertEquals(stateC, future.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+            Assert.assertEquals(1, delays.size());
+            Assert.assertEquals(0L, delays.get(0).longValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEventExecutorIsBounded() throws Exception {
+        final ExecutorService executor = EventExecutors.newEventExecutor("bounded");
+        try {
+            Assert.assertTrue(executor instanceof ThreadPoolExecutor);
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            Assert.assertEquals(pool.getCorePoolSize(), pool.getMaximumPoolSize());
+            Assert.assertTrue(pool.getQueue().remainingCapacity() < Integer.MAX_VALUE);
+            Assert.assertTrue(pool.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.CallerRunsPolicy);
+            Assert.assertTrue(executor.submit(() -> Thread.currentThread().isDaemon()).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchEvents() {
+        final String eventA = "eventA";
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final State<FirstState> stateC = new StateImpl<>("stateC", false, true);
+        final MutableInt executed = new MutableInt();
+        stateA.addTransition(eventA, stateB, (stateful, event, args) -> executed.increment());
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        final FirstState first = new FirstState();
+        final FirstState second = new FirstState();
+        final FirstState blocked = new FirstState();
+        final FirstState stale = new FirstState();
+        blocked.state = stateC.getName();
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<FirstState>(states, stateA) {
+
+            @Override
+            public List<StateUpdate<FirstState>> setCurrentAll(final List<StateUpdate<FirstState>> updates) {
+                Assert.assertEquals(3, updates.size());
+                stale.state = stateB.getName();
+                return super.setCurrentAll(updates);
+            }
+        };
+
+        final FSM<FirstState> fsm = new FSM<>("Batch", persister);
+        final List<FirstState> persisted = new LinkedList<>();
+        final List<FirstState> rejected = new LinkedList<>();
+        final List<FirstState> transitioned = new LinkedList<>();
+        fsm.addListener(new FSMListener<FirstState>() {
+
+            @Override
+            public void onPersist(final FirstState stateful, final State<FirstState> current, final State<FirstState> next, final long nanos) {
+                persisted.add(stateful);
+            }
+
+            @Override
+            public void onStale(final FirstState stateful, final State<FirstState> current, final State<FirstState> next) {
+                rejected.add(stateful);
+            }
+
+            @Override
+            public void onTransition(final FirstState stateful, final String event, final State<FirstState> from, final State<FirstState> to, final long nanos) {
+                transitioned.add(stateful);
+            }
+        });
+        final List<EventResult<FirstState>> results = fsm.onEvents(Arrays.asList(first, blocked, second, stale), eventA);
+
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals(EventResult.Status.TRANSITIONED, results.get(0).getStatus());
+        Assert.assertEquals(stateB, results.get(0).getState());
+        Assert.assertEquals(EventResult.Status.BLOCKED, results.get(1).getStatus());
+        Assert.assertEquals(stateC, results.get(1).getState());
+        Assert.assertEquals(EventResult.Status.TRANSITIONED, results.get(2).getStatus());
+        Assert.assertSame(second, results.get(2).getStateful());
+        Assert.assertEquals(EventResult.Status.STALE, results.get(3).getStatus());
+        Assert.assertEquals(stateB, results.get(3).getState());
+        Assert.assertEquals(stateB.getName(), first.state);
+        Assert.assertEquals(2, executed.intValue());
+        Assert.assertEquals(Arrays.asList(first, second), persisted);
+        Assert.assertEquals(Arrays.asList(stale), rejected);
+        Assert.assertEquals(Arrays.asList(first, second), transitioned);
+
+        final List<EventResult<FirstState>> noops = fsm.onEvents(Arrays.asList(first), eventA);
+        Assert.assertEquals(EventResult.Status.NO_TRANSITION, noops.get(0).getStatus());
+    }
+
+    @Test
+    public void testBatchEventsActionFailure() {
+        final String eventA = "eventA";
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final FirstState failing = new FirstState();
+        final FirstState retrying = new FirstState();
+        final FirstState ok = new FirstState();
+        final RuntimeException failure = new IllegalStateException("failed");
+        final MutableInt executed = new MutableInt();
+        stateA.addTransition(eventA, stateB, (stateful, event, args) -> {
+            if (stateful == failing) {
+                throw failure;
+            }
+            if (stateful == retrying) {
+                throw new RetryException();
+            }
+            executed.increment();
+        });
+
+        final FSM<FirstState> fsm = new FSM<>("Batch", new MemoryPersisterImpl<FirstState>(Arrays.asList(stateA, stateB), stateA));
+        final List<EventResult<FirstState>> results = fsm.onEvents(Arrays.asList(failing, retrying, ok), eventA);
+
+        // The States were committed before the Actions ran, a failing Action doesn't stop the others
+        //
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals(EventResult.Status.FAILED, results.get(0).getStatus());
+        Assert.assertSame(failure, results.get(0).getFailure());
+        Assert.assertEquals(stateB, results.get(0).getState());
+        Assert.assertEquals(EventResult.Status.FAILED, results.get(1).getStatus());
+        Assert.assertTrue(results.get(1).getFailure() instanceof RetryException);
+        Assert.assertEquals(stateB, results.get(1).getState());
+        Assert.assertEquals(EventResult.Status.TRANSITIONED, results.get(2).getStatus());
+        Assert.assertNull(results.get(2).getFailure());
+        Assert.assertEquals(1, executed.intValue());
+        Assert.assertEquals(stateB.getName(), failing.state);
+        Assert.assertEquals(stateB.getName(), retrying.state);
+        Assert.assertEquals(stateB.getName(), ok.state);
+    }
+
+    @Test
+    public void testBlockingWakeUp() throws TooBusyException {
+        final State<FirstState> stateA = new StateImpl<>("stateA", false, true);
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final String eventA = "eventA";
+        final String eventB = "eventB";
+        final FirstState stateful = new FirstState();
+
+        stateA.addTransition(eventB, stateB);
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("WakeUp", persister);
+        fsm.setRetryAttempts(2);
+        fsm.setRetryInterval(10000);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                fsm.onEvent(stateful, eventB);
+            } catch (final Exception e) {
+            }
+        }).start();
+
+        final long start = System.currentTimeMillis();
+        final State<FirstState> state = fsm.onEvent(stateful, eventA);
+        Assert.assertEquals(stateB, state);
+        Assert.assertTrue((System.currentTimeMillis() - start) < 5000);
+    }
+
+    @Test
+    public void testDeferredEvents() throws Exception {
+        final State<FirstState> stateA = new StateImpl<>("stateA", false, true);
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final State<FirstState> stateC = new StateImpl<>("stateC");
+        final String eventA = "eventA";
+        final String eventB = "eventB";
+        final FirstState stateful = new FirstState();
+
+        stateA.addTransition(eventB, stateB);
+        stateB.addTransition(eventA, stateC);
+
+        final List<State<FirstState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        final Persister<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<FirstState> fsm = new FSM<>("Deferred", persister);
+        fsm.setDeferredStates(Arrays.asList(stateA.getName()));
+
+        final CompletableFuture<State<FirstState>> deferred = fsm.onEventAsync(stateful, eventA);
+        Assert.assertFalse(deferred.isDone());
+        Assert.assertEquals(stateA, fsm.onEvent(stateful, eventA));
+
+        Assert.assertEquals(stateB, fsm.onEvent(stateful, eventB));
+        Assert.assertEquals(stateC, deferred.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(stateC, fsm.getCurrentState(stateful));
+    }
+
+    @Test
+    public void testStaleStateRetryUsesObservedState() throws TooBusyException {
+        final FirstState stateful = new FirstState();
+        final String eventA = "eventA";
+        final State<FirstState> stateA = new StateImpl<>("stateA");
+        final State<FirstState> stateB = new StateImpl<>("stateB");
+        final State<FirstState> stateC = new StateImpl<>("stateC");
+        final List<State<FirstState>> states = Arrays.asList(stateA, stateB, stateC);
+        final MemoryPersisterImpl<FirstState> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+
+        // Move the Stateful Entity behind the FSM's back, so the first attempt is stale
+        //
+        stateA.addTransition(eventA, s -> {
+            persister.setCurrent(s, stateB);
+            return new StateActionPairImpl<>(stateC, null);
+        });
+        stateB.addTransition(eventA, stateC);
+
+        final AtomicInteger reads = new AtomicInteger();
+        final FSM<FirstState> fsm = new FSM<FirstState>("Observed", persister, new FixedRetryPolicy(2, 0)) {
+
+            @Override
+            public State<FirstState> getCurrentState(final FirstState obj) {
+                reads.incrementAndGet();
+                return super.getCurrentState(obj);
+            }
+        };
+
+        Assert.assertEquals(stateC, fsm.onEvent(stateful, eventA));
+        Assert.assertEquals(1, reads.get());
+
+        final StaleStateException stale = new StaleStateException(null, stateful, stateB);
+        Assert.assertEquals(stateB, stale.getCurrent(stateful));
+        Assert.assertNull(stale.getCurrent(new FirstState()));
+    }
+
+    @Test
+    public void testLockFreeMemoryPersister() throws Exception {
+        final State<VolatileState> stateA = new StateImpl<>("stateA");
+        final State<VolatileState> stateB = new StateImpl<>("stateB");
+        final List<State<VolatileState>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+
+        final MemoryPersisterImpl<VolatileState> persister = new MemoryPersisterImpl<>(states, stateA);
+        persister.setLockFree(true);
+
+        final VolatileState stateful = new VolatileState();
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < 200; i++) {
+                persister.setCurrent(stateful, stateA);
+                final CyclicBarrier barrier = new CyclicBarrier(threads);
+                final AtomicInteger winners = new AtomicInteger();
+                final List<Future<?>> futures = new LinkedList<>();
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        try {
+                            persister.setCurrent(stateful, stateA, stateB);
+                            winners.incrementAndGet();
+                        } catch (final StaleStateException e) {
+                        }
+                        return null;
+                    }));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+                Assert.assertEquals(1, winners.get());
+                Assert.assertEquals(stateB, persister.getCurrent(stateful));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testOffHeapStoreClose() {
+        final OffHeapStateStore store = new OffHeapStateStore(100);
+        store.set(1, 2);
+        Assert.assertEquals(2, store.get(1));
+        store.close();
+        store.close();
+
+        // Accesses after close fail instead of touching the freed memory
+        //
+        try {
+            store.get(1);
+            Assert.fail("The store is closed");
+        } catch (final IllegalStateException e) {
+        }
+        try {
+            store.compareAndSet(1, 2, 3);
+            Assert.fail("The store is closed");
+        } catch (final IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testOffHeapPersister() throws Exception {
+        final String eventA = "eventA";
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+        final List<State<Device>> states = Arrays.asList(stateA, stateB);
+        stateA.addTransition(eventA, stateB);
+
+        try (OffHeapPersisterImpl<Device> persister = new OffHeapPersisterImpl<>(states, stateA, Device.class, "id", 500)) {
+            final FSM<Device> fsm = new FSM<>("OffHeap", persister);
+            for (long id = 0; id < 1000; id++) {
+                final Device device = new Device(id);
+                Assert.assertEquals(stateA, fsm.getCurrentState(device));
+                if ((id % 2) == 0) {
+                    Assert.assertEquals(stateB, fsm.onEvent(device, eventA));
+                }
+            }
+            Assert.assertEquals(500, persister.getStore().size());
+            Assert.assertEquals(stateB, persister.getCurrent(new Device(998)));
+            Assert.assertEquals(stateA, persister.getCurrent(new Device(999)));
+
+            try {
+                persister.setCurrent(new Device(999), stateA, stateB);
+                Assert.fail("Store should be full");
+            } catch (final IllegalStateException e) {
+            }
+
+            final Device device = new Device(0);
+            final int threads = 4;
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                for (int i = 0; i < 200; i++) {
+                    persister.setCurrent(device, stateA);
+                    final CyclicBarrier barrier = new CyclicBarrier(threads);
+                    final AtomicInteger winners = new AtomicInteger();
+                    final List<Future<?>> futures = new LinkedList<>();
+                    for (int t = 0; t < threads; t++) {
+                        futures.add(executor.submit(() -> {
+                            barrier.await();
+                            try {
+                                persister.setCurrent(device, stateA, stateB);
+                                winners.incrementAndGet();
+                            } catch (final StaleStateException e) {
+                                Assert.assertEquals(stateB, e.getCurrent(device));
+                            }
+                            return null;
+                        }));
+                    }
+                    for (final Future<?> future : futures) {
+                        future.get();
+                    }
+                    Assert.assertEquals(1, winners.get());
+                    Assert.assertEquals(stateB, persister.getCurrent(device));
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testCachingPersister() throws TooBusyException {
+        final String eventA = "eventA";
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+        final State<Device> stateC = new StateImpl<>("stateC");
+        final List<State<Device>> states = Arrays.asList(stateA, stateB, stateC);
+        stateA.addTransition(eventA, stateB);
+        stateB.addTransition(eventA, stateC);
+
+        try (OffHeapPersisterImpl<Device> store = new OffHeapPersisterImpl<>(states, stateA, Device.class, "id", 10)) {
+            final CachingPersister<Device> persister = new CachingPersister<>(store, 2, device -> device.id);
+            final FSM<Device> fsm = new FSM<>("Caching", persister);
+
+            final Device one = new Device(1);
+            Assert.assertEquals(stateB, fsm.onEvent(one, eventA));
+            Assert.assertEquals(1, persister.getMisses());
+            Assert.assertEquals(stateB, fsm.onEvent(new Device(2), eventA));
+            Assert.assertEquals(stateB, persister.getCurrent(one));
+            Assert.assertEquals(1, persister.getHits());
+
+            // Evicts the least recently used, device 2
+            //
+            Assert.assertEquals(stateA, persister.getCurrent(new Device(3)));
+            Assert.assertEquals(1, persister.getEvictions());
+            Assert.assertEquals(2, persister.size());
+
+            // A change behind the cache's back is picked up through the stale State
+            //
+            store.setCurrent(one, stateC);
+            Assert.assertEquals(stateB, persister.getCurrent(one));
+            try {
+                persister.setCurrent(one, stateB, stateC);
+                Assert.fail("State should be stale");
+            } catch (final StaleStateException e) {
+            }
+            Assert.assertEquals(stateC, persister.getCurrent(one));
+        }
+    }
+
+    @Test
+    public void testCachingPersisterAfterCommit() throws TooBusyException {
+        final String eventA = "eventA";
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+        final List<State<Device>> states = Arrays.asList(stateA, stateB);
+        stateA.addTransition(eventA, stateB);
+
+        try (OffHeapPersisterImpl<Device> store = new OffHeapPersisterImpl<>(states, stateA, Device.class, "id", 10)) {
+            final CachingPersister<Device> persister = new CachingPersister<>(store, 10, device -> device.id);
+            final List<Runnable> pending = new LinkedList<>();
+            persister.setAfterCommit(pending::add);
+            final FSM<Device> fsm = new FSM<>("Caching", persister);
+
+            // Nothing is cached until the transaction commits
+            //
+            final Device one = new Device(1);
+            Assert.assertEquals(stateB, fsm.onEvent(one, eventA));
+            Assert.assertEquals(0, persister.size());
+
+            pending.forEach(Runnable::run);
+            Assert.assertEquals(1, persister.size());
+            Assert.assertEquals(stateB, persister.getCurrent(one));
+            Assert.assertEquals(1, persister.getHits());
+        }
+    }
+
+    @Test
+    public void testCachingPersisterStaleRead() throws StaleStateException {
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+
+        try (OffHeapPersisterImpl<Device> store = new OffHeapPersisterImpl<>(Arrays.asList(stateA, stateB), stateA, Device.class, "id", 10)) {
+            final CachingPersister<Device> persister = new CachingPersister<>(store, 10, device -> device.id);
+            final List<Runnable> pending = new LinkedList<>();
+            persister.setAfterCommit(pending::add);
+
+            final Device one = new Device(1);
+            Assert.assertEquals(stateA, persister.getCurrent(one));
+            persister.setCurrent(one, stateA, stateB);
+
+            // The State read on the miss is cached after the newer State, it must not overwrite it
+            //
+            pending.get(1).run();
+            pending.get(0).run();
+            Assert.assertEquals(stateB, persister.getCurrent(one));
+            Assert.assertEquals(1, persister.getHits());
+        }
+    }
+
+    @Test
+    public void testCachingNotifyingPersister() throws InterruptedException {
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+        final NotifyingPersister<Device> notifying = Mockito.mock(NotifyingPersister.class);
+        final Device one = new Device(1);
+        Mockito.when(notifying.getCurrent(one)).thenReturn(stateA, stateB);
+        Mockito.when(notifying.awaitChange(one, stateA, 100)).thenReturn(true);
+
+        final CachingPersister<Device> persister = new CachingNotifyingPersister<>(notifying, 10, device -> device.id);
+        Assert.assertEquals(stateA, persister.getCurrent(one));
+
+        // Waits are passed through, and a signaled change drops the cached State
+        //
+        Assert.assertTrue(((NotifyingPersister<Device>) persister).awaitChange(one, stateA, 100));
+        Assert.assertEquals(stateB, persister.getCurrent(one));
+        Assert.assertEquals(2, persister.getMisses());
+    }
+
+    @Test
+    public void testCachingBulkPersister() {
+        final State<Device> stateA = new StateImpl<>("stateA");
+        final State<Device> stateB = new StateImpl<>("stateB");
+        final BulkPersister<Device> bulk = Mockito.mock(BulkPersister.class);
+        final Device one = new Device(1);
+        Mockito.when(bulk.getCurrent(one)).thenReturn(stateA);
+        Mockito.when(bulk.transitionAll(Arrays.asList(1L), stateA, stateB)).thenReturn(Arrays.asList(1L));
+
+        final CachingPersister<Device> persister = new CachingBulkPersister<>(bulk, 10, device -> device.id);
+        Assert.assertEquals(stateA, persister.getCurrent(one));
+        Assert.assertEquals(1, persister.size());
+
+        // Moving in bulk drops the cached States
+        //
+        Assert.assertEquals(Arrays.asList(1L), ((BulkPersister<Device>) persister).transitionAll(Arrays.asList(1L), stateA, stateB));
+        Assert.assertEquals(0, persister.size());
+    }
 }
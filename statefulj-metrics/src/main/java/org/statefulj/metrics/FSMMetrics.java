@@ -0,0 +1,155 @@
+package org.statefulj.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.statefulj.fsm.FSM;
+import org.statefulj.fsm.FSMListener;
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.WaitAndRetryException;
+import org.statefulj.fsm.model.State;
+
+/**
+ * An {@link FSMListener} that collects per State pair Transition counts and latency histograms, Persister latency, retries and events dropped with a
+ * {@link org.statefulj.fsm.TooBusyException}. All counters are {@link LongAdder}s and histograms are recorded wait-free, so a single instance can be shared by
+ * all the threads driving an {@link FSM}
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class FSMMetrics<T> implements FSMListener<T> {
+    private final String name;
+    private final ConcurrentMap<String, ConcurrentMap<String, TransitionMetrics>> transitions = new ConcurrentHashMap<>();
+    private final LatencyRecorder persistLatency = new LatencyRecorder();
+    private final LongAdder staleStates = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder blockedRetries = new LongAdder();
+    private final LongAdder tooBusy = new LongAdder();
+
+    public FSMMetrics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create the metrics and register them with the FSM
+     *
+     * @param fsm
+     *            The FSM to observe
+     * @return The registered metrics
+     */
+    public static <T> FSMMetrics<T> register(final FSM<T> fsm) {
+        final FSMMetrics<T> metrics = new FSMMetrics<>(fsm.getName());
+        fsm.addListener(metrics);
+        return metrics;
+    }
+
+    @Override
+    public void onTransition(final T stateful, final String event, final State<T> from, final State<T> to, final long nanos) {
+        this.getTransitionMetrics(from.getName(), to.getName()).recordTransition(nanos);
+    }
+
+    @Override
+    public void onPersist(final T stateful, final State<T> current, final State<T> next, final long nanos) {
+        persistLatency.record(nanos);
+    }
+
+    @Override
+    public void onStale(final T stateful, final State<T> current, final State<T> next) {
+        staleStates.increment();
+    }
+
+    @Override
+    public void onAction(final T stateful, final String event, final String from, final String to, final long nanos) {
+        this.getTransitionMetrics(from, to).recordAction(nanos);
+    }
+
+    @Override
+    public void onRetry(final T stateful, final String event, final int attempts, final long delay, final RetryException e) {
+        retries.increment();
+        if (e instanceof WaitAndRetryException) {
+            blockedRetries.increment();
+        }
+    }
+
+    @Override
+    public void onTooBusy(final T stateful, final String event, final int attempts) {
+        tooBusy.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TransitionMetrics getTransitionMetrics(final String from, final String to) {
+        ConcurrentMap<String, TransitionMetrics> targets = transitions.get(from);
+        if (targets == null) {
+            targets = transitions.computeIfAbsent(from, key -> new ConcurrentHashMap<>());
+        }
+        TransitionMetrics metrics = targets.get(to);
+        if (metrics == null) {
+            metrics = targets.computeIfAbsent(to, key -> new TransitionMetrics(from, to));
+        }
+        return metrics;
+    }
+
+    public Collection<TransitionMetrics> getTransitionMetrics() {
+        final List<TransitionMetrics> metrics = new ArrayList<>();
+        for (final ConcurrentMap<String, TransitionMetrics> targets : transitions.values()) {
+            metrics.addAll(targets.values());
+        }
+        return metrics;
+    }
+
+    public long getTransitionCount(final String from, final String to) {
+        final ConcurrentMap<String, TransitionMetrics> targets = transitions.get(from);
+        final TransitionMetrics metrics = (targets == null) ? null : targets.get(to);
+        return (metrics == null) ? 0 : metrics.getCount();
+    }
+
+    public LatencyRecorder getPersistLatency() {
+        return persistLatency;
+    }
+
+    /**
+     * @return Number of State changes rejected by the Persister because the State was changed concurrently
+     */
+    public long getStaleStates() {
+        return staleStates.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return Number of retries caused by a Stateful Entity being in a blocking State
+     */
+    public long getBlockedRetries() {
+        return blockedRetries.sum();
+    }
+
+    public long getTooBusy() {
+        return tooBusy.sum();
+    }
+
+    public void reset() {
+        for (final TransitionMetrics metrics : this.getTransitionMetrics()) {
+            metrics.reset();
+        }
+        persistLatency.reset();
+        staleStates.reset();
+        retries.reset();
+        blockedRetries.reset();
+        tooBusy.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "FSMMetrics[name=" + name + ", transitions=" + this.getTransitionMetrics() + ", retries=" + this.getRetries() + ", staleStates=" + this.getStaleStates()
+                + ", tooBusy=" + this.getTooBusy() + "]";
+    }
+}
@@ -0,0 +1,33 @@
+package org.statefulj.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records latencies in nanoseconds. Recording is wait-free; reads swap out the interval histogram of the {@link Recorder} and fold it into a running total
+ */
+public class LatencyRecorder {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    public void record(final long nanos) {
+        recorder.recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * @return A copy of all latencies recorded since creation or the last {@link #reset()}
+     */
+    public synchronized Histogram getHistogram() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return total.copy();
+    }
+
+    public synchronized void reset() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.reset();
+    }
+}
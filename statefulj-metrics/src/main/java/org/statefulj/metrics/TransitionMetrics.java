@@ -0,0 +1,62 @@
+package org.statefulj.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the Transitions between two States
+ */
+public class TransitionMetrics {
+    private final String from;
+    private final String to;
+    private final LongAdder count = new LongAdder();
+    private final LatencyRecorder transitionLatency = new LatencyRecorder();
+    private final LatencyRecorder actionLatency = new LatencyRecorder();
+
+    public TransitionMetrics(final String from, final String to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return Latency of the whole Transition, Persister and Action included
+     */
+    public LatencyRecorder getTransitionLatency() {
+        return transitionLatency;
+    }
+
+    public LatencyRecorder getActionLatency() {
+        return actionLatency;
+    }
+
+    void recordTransition(final long nanos) {
+        count.increment();
+        transitionLatency.record(nanos);
+    }
+
+    void recordAction(final long nanos) {
+        actionLatency.record(nanos);
+    }
+
+    void reset() {
+        count.reset();
+        transitionLatency.reset();
+        actionLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionMetrics[" + from + "->" + to + ", count=" + getCount() + "]";
+    }
+}
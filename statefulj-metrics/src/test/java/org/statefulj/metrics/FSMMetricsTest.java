@@ -0,0 +1,91 @@
+package org.statefulj.metrics;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.statefulj.fsm.FSM;
+import org.statefulj.fsm.Persister;
+import org.statefulj.fsm.RetryException;
+import org.statefulj.fsm.TooBusyException;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.StateActionPairImpl;
+import org.statefulj.fsm.model.impl.StateImpl;
+import org.statefulj.persistence.memory.MemoryPersisterImpl;
+
+public class FSMMetricsTest {
+    private static class Foo {
+        @org.statefulj.persistence.annotations.State
+        String state;
+    }
+
+    @Test
+    public void testMetrics() throws TooBusyException, RetryException {
+        final Foo stateful = new Foo();
+
+        final State<Foo> stateA = new StateImpl<>("stateA");
+        final State<Foo> stateB = new StateImpl<>("stateB");
+        final State<Foo> stateC = new StateImpl<>("stateC", false, true);
+
+        // The first attempt moves the Stateful Entity to stateB behind the FSM's back, so the Persister reports a stale State and the event is retried
+        // from stateB
+        //
+        final boolean[] changed = new boolean[1];
+        stateA.addTransition("eventA", foo -> {
+            if (!changed[0]) {
+                changed[0] = true;
+                foo.state = stateB.getName();
+            }
+            return new StateActionPairImpl<>(stateB, (s, event, args) -> {
+            });
+        });
+        stateB.addTransition("eventA", stateA);
+        stateB.addTransition("eventB", stateC);
+
+        final List<State<Foo>> states = new LinkedList<>();
+        states.add(stateA);
+        states.add(stateB);
+        states.add(stateC);
+
+        final Persister<Foo> persister = new MemoryPersisterImpl<>(stateful, states, stateA);
+        final FSM<Foo> fsm = new FSM<>("MetricsFSM", persister, 3, 1);
+        final FSMMetrics<Foo> metrics = FSMMetrics.register(fsm);
+
+        stateful.state = stateA.getName();
+        fsm.onEvent(stateful, "eventA");
+        Assert.assertEquals(stateA.getName(), stateful.state);
+        Assert.assertEquals(1, metrics.getStaleStates());
+        Assert.assertEquals(1, metrics.getRetries());
+
+        fsm.onEvent(stateful, "eventA");
+        fsm.onEvent(stateful, "eventA");
+        Assert.assertEquals(0, metrics.getTransitionCount("stateA", "stateA"));
+        Assert.assertEquals(1, metrics.getTransitionCount("stateA", "stateB"));
+        Assert.assertEquals(2, metrics.getTransitionCount("stateB", "stateA"));
+        Assert.assertEquals(0, metrics.getTransitionCount("stateB", "stateC"));
+
+        final TransitionMetrics ab = metrics.getTransitionMetrics("stateA", "stateB");
+        Assert.assertEquals(1, ab.getTransitionLatency().getHistogram().getTotalCount());
+        Assert.assertEquals(1, ab.getActionLatency().getHistogram().getTotalCount());
+        Assert.assertEquals(0, metrics.getTransitionMetrics("stateB", "stateA").getActionLatency().getHistogram().getTotalCount());
+        Assert.assertEquals(3, metrics.getPersistLatency().getHistogram().getTotalCount());
+
+        fsm.onEvent(stateful, "eventA");
+        fsm.onEvent(stateful, "eventB");
+        try {
+            fsm.onEvent(stateful, "eventA");
+            Assert.fail("Expected TooBusyException");
+        } catch (final TooBusyException e) {
+            // Expected
+        }
+        Assert.assertEquals(1, metrics.getTooBusy());
+        Assert.assertEquals(4, metrics.getRetries());
+        Assert.assertEquals(3, metrics.getBlockedRetries());
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getTransitionCount("stateA", "stateB"));
+        Assert.assertEquals(0, ab.getTransitionLatency().getHistogram().getTotalCount());
+        Assert.assertEquals(0, metrics.getRetries());
+    }
+}
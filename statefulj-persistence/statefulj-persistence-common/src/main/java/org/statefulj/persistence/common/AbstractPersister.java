@@ -1,8 +1,14 @@
 package org.statefulj.persistence.common;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -18,9 +24,13 @@ public abstract class AbstractPersister<T> implements Persister<T> {
 
     private Field idField;
     private Field stateField;
+    private Field versionField;
     private State<T> start;
     private Class<T> clazz;
     private HashMap<String, State<T>> states = new HashMap<String, State<T>>();
+    private List<String> stateCodes;
+    private StateFieldCodec<T> codec;
+    private Executor executor;
 
     public AbstractPersister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz) {
 
@@ -40,34 +50,33 @@ public abstract class AbstractPersister<T> implements Persister<T> {
         }
 
         if (!validStateField(this.stateField)) {
-            throw new RuntimeException(String.format("State field, %s, of class %s, is not of type %s", this.stateField.getName(), clazz, getStateFieldType()));
+            throw new RuntimeException(String.format("State field, %s, of class %s, is not of type String, int, short or an Enum", this.stateField.getName(), clazz));
         }
 
         this.stateField.setAccessible(true);
 
+        this.versionField = findVersionField(clazz);
+        if (this.versionField != null) {
+            this.versionField.setAccessible(true);
+        }
+
         this.start = start;
 
         for (final State<T> state : states) {
             this.states.put(state.getName(), state);
         }
+
+        buildCodec();
     }
 
     public State<T> getCurrent(final T stateful) {
-        State<T> state = null;
         try {
-            final String stateKey = this.getState(stateful);
-            state = (stateKey == null) ? this.start : this.states.get(stateKey);
-        } catch (final NoSuchFieldException e) {
-            throw new RuntimeException(e);
-        } catch (final SecurityException e) {
-            throw new RuntimeException(e);
+            return getCodec().toState(this.stateField.get(stateful));
         } catch (final IllegalArgumentException e) {
             throw new RuntimeException(e);
         } catch (final IllegalAccessException e) {
             throw new RuntimeException(e);
         }
-        state = (state == null) ? this.start : state;
-        return state;
     }
 
     /**
@@ -105,7 +114,50 @@ public abstract class AbstractPersister<T> implements Persister<T> {
         return stateField;
     }
 
-    protected abstract Class<?> getStateFieldType();
+    /**
+     * @return The type of the State field as held by the codec, String if the State field isn't set up yet
+     */
+    protected Class<?> getStateFieldType() {
+        return (this.codec != null) ? this.codec.getType() : String.class;
+    }
+
+    /**
+     * @return The optimistic locking version field of the Stateful Entity, or null if it doesn't have one
+     */
+    protected Field findVersionField(final Class<?> clazz) {
+        return null;
+    }
+
+    public List<String> getStateCodes() {
+        return stateCodes;
+    }
+
+    /**
+     * Required if the State field is an int or a short: the field then holds the position of its State in this list. The codes are validated as soon as they
+     * are set
+     *
+     * @param stateCodes
+     *            Names of the States in code order, starting with the start State. Codes are persisted, so new States must be appended
+     */
+    public void setStateCodes(final List<String> stateCodes) {
+        this.stateCodes = stateCodes;
+        buildCodec();
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Bulk transitions are split in chunks; with an Executor the chunks run in parallel, each in its own transaction, otherwise they run one after the other on
+     * the calling thread
+     *
+     * @param executor
+     *            Executor of the chunks, null to run them on the calling thread
+     */
+    public void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
 
     protected Field getIdField() {
         return idField;
@@ -121,6 +173,15 @@ public abstract class AbstractPersister<T> implements Persister<T> {
 
     protected void setStateField(final Field stateField) {
         this.stateField = stateField;
+        buildCodec();
+    }
+
+    protected Field getVersionField() {
+        return versionField;
+    }
+
+    protected void setVersionField(final Field versionField) {
+        this.versionField = versionField;
     }
 
     protected State<T> getStart() {
@@ -129,6 +190,7 @@ public abstract class AbstractPersister<T> implements Persister<T> {
 
     protected void setStart(final State<T> start) {
         this.start = start;
+        buildCodec();
     }
 
     protected Class<T> getClazz() {
@@ -145,6 +207,18 @@ public abstract class AbstractPersister<T> implements Persister<T> {
 
     protected void setStates(final HashMap<String, State<T>> states) {
         this.states = states;
+        buildCodec();
+    }
+
+    /**
+     * @throws RuntimeException
+     *             if the State field is numeric and no State codes were set
+     */
+    protected StateFieldCodec<T> getCodec() {
+        if (this.codec == null) {
+            throw new RuntimeException(String.format("State codes are required for the State field %s of %s", this.stateField.getName(), this.clazz));
+        }
+        return codec;
     }
 
     protected Object getId(final T obj) throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
@@ -152,16 +226,72 @@ public abstract class AbstractPersister<T> implements Persister<T> {
     }
 
     protected String getState(final T obj) throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
-        return (String) this.stateField.get(obj);
+        return getCodec().decode(this.stateField.get(obj));
     }
 
     protected void setState(final T obj, String state) throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException, SecurityException {
         state = (state == null) ? this.start.getName() : state;
-        this.stateField.set(obj, state);
+        this.stateField.set(obj, getCodec().encode(state));
     }
 
     protected void throwStaleState(final State<T> current, final State<T> next) throws StaleStateException {
         final String err = String.format("Unable to update state, entity.state=%s, db.state=%s", current.getName(), next.getName());
         throw new StaleStateException(err);
     }
+
+    /**
+     * Throws a StaleStateException carrying the State read from the db, so the FSM can retry the event without reading it again
+     */
+    protected void throwStaleState(final T stateful, final State<T> current, final String actual) throws StaleStateException {
+        final String err = String.format("Unable to update state, entity.state=%s, db.state=%s", current.getName(), actual);
+        throw new StaleStateException(err, stateful, getCodec().toState(actual));
+    }
+
+    /**
+     * Apply the transition to the ids in chunks of chunkSize, on the Executor if there is one
+     *
+     * @return The ids moved by all the chunks
+     */
+    protected <ID> List<ID> transitionInChunks(final Collection<ID> ids, final int chunkSize, final Function<List<ID>, List<ID>> transition) {
+        final List<ID> all = new ArrayList<>(ids);
+        final List<List<ID>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += chunkSize) {
+            chunks.add(all.subList(i, Math.min(i + chunkSize, all.size())));
+        }
+
+        final List<ID> moved = new ArrayList<>();
+        if ((executor == null) || (chunks.size() < 2)) {
+            for (final List<ID> chunk : chunks) {
+                moved.addAll(transition.apply(chunk));
+            }
+            return moved;
+        }
+
+        final List<CompletableFuture<List<ID>>> futures = new ArrayList<>(chunks.size());
+        for (final List<ID> chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> transition.apply(chunk), executor));
+        }
+        try {
+            for (final CompletableFuture<List<ID>> future : futures) {
+                moved.addAll(future.join());
+            }
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return moved;
+    }
+
+    /**
+     * A numeric State field can't be decoded until its State codes are set, its codec is built and validated by {@link #setStateCodes(List)}
+     */
+    private void buildCodec() {
+        if ((this.stateField == null) || (StateFieldCodec.isNumeric(this.stateField.getType()) && (this.stateCodes == null))) {
+            this.codec = null;
+            return;
+        }
+        this.codec = new StateFieldCodec<>(this.stateField.getType(), this.states, this.start, this.stateCodes);
+    }
 }
@@ -0,0 +1,155 @@
+package org.statefulj.persistence.common;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.statefulj.fsm.model.State;
+
+/**
+ * Converts between State names and the values held by the State field. String fields hold the name of the State. Numeric fields (int, short and their wrappers)
+ * hold the code of the State, which is its position in the declared list of State codes; Enum fields hold the constant named after the State. Numeric and Enum
+ * values are resolved to States by indexing an array with the code or the ordinal. Code 0 must be the start State, since it's the value of a numeric field that was
+ * never set
+ *
+ * @param <T>
+ *            The Stateful Entity type
+ */
+public class StateFieldCodec<T> {
+
+    private final Class<?> type;
+
+    private final State<T> start;
+
+    private final Map<String, State<T>> states;
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    private State<T>[] byCode;
+
+    /**
+     * @param type
+     *            Type of the State field
+     * @param states
+     *            The States, keyed by name
+     * @param start
+     *            The State of a Stateful Entity whose State field is null
+     * @param codes
+     *            Names of the States in code order, starting with the start State. Required for numeric State fields and ignored otherwise. Codes are
+     *            persisted, so new States must be appended
+     * @throws RuntimeException
+     *             if the State field is numeric and the codes are missing, name an unknown State or don't start with the start State
+     */
+    @SuppressWarnings("unchecked")
+    public StateFieldCodec(final Class<?> type, final Map<String, State<T>> states, final State<T> start, final List<String> codes) {
+        this.type = type;
+        this.states = states;
+        this.start = start;
+
+        if (type.isEnum()) {
+            final Object[] constants = type.getEnumConstants();
+            this.byCode = new State[constants.length];
+            for (final Object constant : constants) {
+                final String name = ((Enum<?>) constant).name();
+                this.byCode[((Enum<?>) constant).ordinal()] = states.get(name);
+                this.values.put(name, constant);
+            }
+        } else if (isNumeric(type)) {
+            validate(type, states, start, codes);
+            this.byCode = new State[codes.size()];
+            for (int code = 0; code < codes.size(); code++) {
+                this.byCode[code] = states.get(codes.get(code));
+                if (isShort(type)) {
+                    this.values.put(codes.get(code), Short.valueOf((short) code));
+                } else {
+                    this.values.put(codes.get(code), Integer.valueOf(code));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The type of the State field
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return true if State fields of the type can be encoded
+     */
+    public static boolean supports(final Class<?> type) {
+        return type.equals(String.class) || type.isEnum() || isNumeric(type);
+    }
+
+    /**
+     * @return The value of the State field for the State name
+     */
+    public Object encode(final String name) {
+        if (type.equals(String.class) || (name == null)) {
+            return name;
+        }
+        final Object value = values.get(name);
+        if (value == null) {
+            throw new RuntimeException(String.format("No code defined for State %s, field type %s", name, type.getName()));
+        }
+        return value;
+    }
+
+    /**
+     * @param value
+     *            The value of the State field or column, either the name, the code or the Enum constant
+     * @return The State name, or null if the value is null
+     */
+    public String decode(final Object value) {
+        if ((value == null) || (value instanceof String)) {
+            return (String) value;
+        }
+        final State<T> state = toState(value);
+        return (state == null) ? null : state.getName();
+    }
+
+    /**
+     * @return The State for the value of the State field, the start State if the value is null or unknown
+     */
+    public State<T> toState(final Object value) {
+        State<T> state;
+        if (value == null) {
+            state = start;
+        } else if (value instanceof String) {
+            state = states.get(value);
+        } else {
+            final int code = (value instanceof Enum) ? ((Enum<?>) value).ordinal() : ((Number) value).intValue();
+            if (byCode == null) {
+                throw new RuntimeException(String.format("No State codes defined, field type %s", type.getName()));
+            }
+            state = ((code >= 0) && (code < byCode.length)) ? byCode[code] : null;
+        }
+        return (state == null) ? start : state;
+    }
+
+    private static <T> void validate(final Class<?> type, final Map<String, State<T>> states, final State<T> start, final List<String> codes) {
+        if ((codes == null) || codes.isEmpty()) {
+            throw new RuntimeException(String.format("State codes are required for a State field of type %s", type.getName()));
+        }
+        for (final String code : codes) {
+            if (!states.containsKey(code)) {
+                throw new RuntimeException(String.format("State code %s doesn't name a State", code));
+            }
+        }
+        if ((start != null) && !start.getName().equals(codes.get(0))) {
+            throw new RuntimeException(String.format("State code 0 must be the start State %s, was %s", start.getName(), codes.get(0)));
+        }
+    }
+
+    /**
+     * @return true if the State field holds State codes
+     */
+    public static boolean isNumeric(final Class<?> type) {
+        return type.equals(int.class) || type.equals(Integer.class) || isShort(type);
+    }
+
+    private static boolean isShort(final Class<?> type) {
+        return type.equals(short.class) || type.equals(Short.class);
+    }
+}
@@ -19,14 +19,20 @@ package org.statefulj.persistence.common;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.StateImpl;
 
 public class AbstractPersisterTest {
 
@@ -51,4 +57,59 @@ public class AbstractPersisterTest {
         assertEquals("stateField2", field.getName());
     }
 
+    private enum Status {
+        stateA, stateB
+    }
+
+    @Test
+    public void testStateFieldCodec() {
+        final State<MockEntity> stateA = new StateImpl<MockEntity>("stateA");
+        final State<MockEntity> stateB = new StateImpl<MockEntity>("stateB");
+        final Map<String, State<MockEntity>> states = new HashMap<String, State<MockEntity>>();
+        states.put(stateA.getName(), stateA);
+        states.put(stateB.getName(), stateB);
+
+        final StateFieldCodec<MockEntity> shortCodec = new StateFieldCodec<MockEntity>(short.class, states, stateA, Arrays.asList("stateA", "stateB"));
+        assertEquals(Short.valueOf((short) 1), shortCodec.encode("stateB"));
+        assertEquals(stateB, shortCodec.toState((short) 1));
+        assertEquals("stateB", shortCodec.decode(1));
+        assertEquals(stateA, shortCodec.toState(null));
+
+        final StateFieldCodec<MockEntity> enumCodec = new StateFieldCodec<MockEntity>(Status.class, states, stateA, null);
+        assertEquals(Status.stateB, enumCodec.encode("stateB"));
+        assertEquals(stateB, enumCodec.toState(Status.stateB));
+        assertEquals("stateB", enumCodec.decode("stateB"));
+
+        final StateFieldCodec<MockEntity> stringCodec = new StateFieldCodec<MockEntity>(String.class, states, stateA, null);
+        assertEquals("stateB", stringCodec.encode("stateB"));
+        assertNull(stringCodec.decode(null));
+        assertEquals(stateB, stringCodec.toState("stateB"));
+        assertEquals(String.class, stringCodec.getType());
+    }
+
+    @Test
+    public void testStateFieldCodecValidation() {
+        final State<MockEntity> stateA = new StateImpl<MockEntity>("stateA");
+        final State<MockEntity> stateB = new StateImpl<MockEntity>("stateB");
+        final Map<String, State<MockEntity>> states = new HashMap<String, State<MockEntity>>();
+        states.put(stateA.getName(), stateA);
+        states.put(stateB.getName(), stateB);
+
+        assertRejected(int.class, states, stateA, null);
+        assertRejected(Integer.class, states, stateA, Arrays.asList("stateA", "stateX"));
+
+        // An int field that was never set holds 0, which must decode to the start State
+        //
+        assertRejected(int.class, states, stateA, Arrays.asList("stateB", "stateA"));
+        assertEquals(stateA, new StateFieldCodec<MockEntity>(int.class, states, stateA, Arrays.asList("stateA", "stateB")).toState(0));
+    }
+
+    private static void assertRejected(final Class<?> type, final Map<String, State<MockEntity>> states, final State<MockEntity> start, final List<String> codes) {
+        try {
+            new StateFieldCodec<MockEntity>(type, states, start, codes);
+            fail("Expected the State codes to be rejected");
+        } catch (final RuntimeException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,377 @@
+package org.statefulj.persistence.jdbc;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.annotation.Id;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.statefulj.common.utils.ReflectionUtils;
+import org.statefulj.common.utils.StripedLock;
+import org.statefulj.fsm.BulkPersister;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.StateUpdate;
+import org.statefulj.fsm.model.State;
+import org.statefulj.persistence.common.AbstractPersister;
+import org.statefulj.persistence.common.StateFieldCodec;
+
+/**
+ * Persists the State with plain JDBC. The compare-and-set statements are built once per Stateful Entity class; each State change only binds the id, the current
+ * State and the next State. Connections are obtained through {@link DataSourceUtils}, so the Persister joins the Spring managed transaction if there is one.
+ * Stateful Entities without an id are updated in memory only. By default the table is named after the Stateful Entity class and the columns after the id and State
+ * fields
+ */
+public class JdbcPersister<T> extends AbstractPersister<T> implements BulkPersister<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcPersister.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final StripedLock locks = new StripedLock();
+
+    private final DataSource dataSource;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private String tableName;
+
+    private String idColumn;
+
+    private String stateColumn;
+
+    private String updateSql;
+
+    private String updateStartSql;
+
+    private String selectSql;
+
+    /**
+     * Bulk transitions run in transactions of a {@link DataSourceTransactionManager} over the dataSource
+     */
+    public JdbcPersister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz, final DataSource dataSource) {
+        this(states, stateFieldName, start, clazz, dataSource, (dataSource != null) ? new DataSourceTransactionManager(dataSource) : null);
+    }
+
+    public JdbcPersister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz, final DataSource dataSource,
+            final PlatformTransactionManager transactionManager) {
+        super(states, stateFieldName, start, clazz);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("A DataSource is required");
+        }
+        this.dataSource = dataSource;
+        this.transactionManager = transactionManager;
+        this.tableName = clazz.getSimpleName();
+        this.idColumn = getIdField().getName();
+        this.stateColumn = getStateField().getName();
+        buildStatements();
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
+        try {
+            final Object id = getId(stateful);
+            if (id != null) {
+                updateStateInDB(stateful, current, next, id);
+                setState(stateful, next.getName());
+            } else {
+                updateStateInMemory(stateful, current, next);
+            }
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final SecurityException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Updates are sent as JDBC batches of batchSize statements, one batch per compare-and-set statement. Stateful Entities whose row wasn't updated are stale
+     */
+    @Override
+    public List<StateUpdate<T>> setCurrentAll(final List<StateUpdate<T>> updates) {
+        final List<StateUpdate<T>> stale = new LinkedList<>();
+        final List<StateUpdate<T>> fromStart = new ArrayList<>();
+        final List<StateUpdate<T>> fromOther = new ArrayList<>();
+
+        try {
+            for (final StateUpdate<T> update : updates) {
+                if (getId(update.getStateful()) != null) {
+                    (update.getCurrent().equals(getStart()) ? fromStart : fromOther).add(update);
+                } else {
+                    try {
+                        updateStateInMemory(update.getStateful(), update.getCurrent(), update.getNext());
+                    } catch (final StaleStateException e) {
+                        stale.add(update);
+                    }
+                }
+            }
+
+            for (int i = 0; i < fromStart.size(); i += batchSize) {
+                updateStatesInDB(updateStartSql, fromStart.subList(i, Math.min(i + batchSize, fromStart.size())), stale);
+            }
+            for (int i = 0; i < fromOther.size(); i += batchSize) {
+                updateStatesInDB(updateSql, fromOther.subList(i, Math.min(i + batchSize, fromOther.size())), stale);
+            }
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final SecurityException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        return stale;
+    }
+
+    /**
+     * Each chunk of batchSize ids locks the rows still in the from State with a SELECT ... FOR UPDATE and moves them with a single UPDATE ... WHERE id IN (...).
+     * A chunk joins the caller's transaction if there is one on the calling thread, otherwise it runs in its own transaction
+     */
+    @Override
+    public <ID> List<ID> transitionAll(final Collection<ID> ids, final State<T> from, final State<T> to) {
+        final TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        return transitionInChunks(ids, batchSize, chunk -> tt.execute(status -> transitionInDB(chunk, from, to)));
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(final String tableName) {
+        this.tableName = tableName;
+        buildStatements();
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public void setIdColumn(final String idColumn) {
+        this.idColumn = idColumn;
+        buildStatements();
+    }
+
+    public String getStateColumn() {
+        return stateColumn;
+    }
+
+    public void setStateColumn(final String stateColumn) {
+        this.stateColumn = stateColumn;
+        buildStatements();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected boolean validStateField(final Field stateField) {
+        return StateFieldCodec.supports(stateField.getType());
+    }
+
+    @Override
+    protected Field findIdField(final Class<?> clazz) {
+        final Field idField = ReflectionUtils.getReferencedField(clazz, Id.class);
+        return (idField != null) ? idField : ReflectionUtils.getField(clazz, "id");
+    }
+
+    private void buildStatements() {
+        this.updateSql = String.format("UPDATE %s SET %s = ? WHERE %s = ? AND %s = ?", tableName, stateColumn, idColumn, stateColumn);
+        this.updateStartSql = String.format("UPDATE %s SET %s = ? WHERE %s = ? AND (%s = ? OR %s IS NULL)", tableName, stateColumn, idColumn, stateColumn, stateColumn);
+        this.selectSql = String.format("SELECT %s FROM %s WHERE %s = ?", stateColumn, tableName, idColumn);
+    }
+
+    private void updateStateInMemory(final T stateful, final State<T> current, final State<T> next) throws NoSuchFieldException, IllegalAccessException, StaleStateException {
+        final Lock lock = locks.get(stateful);
+        lock.lock();
+        try {
+            String state = getState(stateful);
+            state = (state == null) ? getStart().getName() : state;
+            if (state.equals(current.getName())) {
+                setState(stateful, next.getName());
+            } else {
+                throwStaleState(stateful, current, state);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateStateInDB(final T stateful, final State<T> current, final State<T> next, final Object id) throws NoSuchFieldException, IllegalAccessException, StaleStateException {
+        final Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            final int updated;
+            try (PreparedStatement ps = con.prepareStatement(current.equals(getStart()) ? updateStartSql : updateSql)) {
+                bind(ps, id, current, next);
+                updated = ps.executeUpdate();
+            }
+
+            if (updated == 0) {
+                final String state = selectState(con, id);
+                JdbcPersister.logger.warn("Stale State, expected={}, actual={}", current.getName(), state);
+                setState(stateful, state);
+                throwStaleState(stateful, current, state);
+            }
+        } catch (final SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private void updateStatesInDB(final String sql, final List<StateUpdate<T>> updates, final List<StateUpdate<T>> stale) throws NoSuchFieldException, IllegalAccessException {
+        final Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            final int[] counts;
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (final StateUpdate<T> update : updates) {
+                    bind(ps, getId(update.getStateful()), update.getCurrent(), update.getNext());
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            }
+
+            for (int i = 0; i < updates.size(); i++) {
+                final StateUpdate<T> update = updates.get(i);
+                if (counts[i] > 0) {
+                    setState(update.getStateful(), update.getNext().getName());
+                    continue;
+                }
+
+                // Without a count the row is read back: it was updated if it now holds the next State
+                //
+                final String state = selectState(con, getId(update.getStateful()));
+                if ((counts[i] == Statement.SUCCESS_NO_INFO) && update.getNext().getName().equals(state)) {
+                    setState(update.getStateful(), state);
+                } else {
+                    JdbcPersister.logger.warn("Stale State, expected={}, actual={}", update.getCurrent().getName(), state);
+                    setState(update.getStateful(), state);
+                    stale.add(update);
+                }
+            }
+        } catch (final SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private <ID> List<ID> transitionInDB(final List<ID> ids, final State<T> from, final State<T> to) {
+        // Match the returned ids by value, the driver may not return them with the caller's type
+        //
+        final Map<String, ID> byKey = new HashMap<>();
+        for (final ID id : ids) {
+            byKey.put(String.valueOf(id), id);
+        }
+
+        final String condition = from.equals(getStart()) ? String.format("(%s = ? OR %s IS NULL)", stateColumn, stateColumn) : String.format("%s = ?", stateColumn);
+        final Connection con = DataSourceUtils.getConnection(dataSource);
+        try {
+            final List<ID> moving = new ArrayList<>(ids.size());
+            final String lockSql = String.format("SELECT %s FROM %s WHERE %s IN (%s) AND %s FOR UPDATE", idColumn, tableName, idColumn, placeholders(ids.size()), condition);
+            try (PreparedStatement ps = con.prepareStatement(lockSql)) {
+                int i = 1;
+                for (final ID id : ids) {
+                    ps.setObject(i++, id);
+                }
+                ps.setObject(i, toColumn(from));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        moving.add(byKey.get(String.valueOf(rs.getObject(1))));
+                    }
+                }
+            }
+            if (moving.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            final String moveSql = String.format("UPDATE %s SET %s = ? WHERE %s IN (%s) AND %s", tableName, stateColumn, idColumn, placeholders(moving.size()), condition);
+            final int updated;
+            try (PreparedStatement ps = con.prepareStatement(moveSql)) {
+                int i = 1;
+                ps.setObject(i++, toColumn(to));
+                for (final ID id : moving) {
+                    ps.setObject(i++, id);
+                }
+                ps.setObject(i, toColumn(from));
+                updated = ps.executeUpdate();
+            }
+            if (updated != moving.size()) {
+                throw new IllegalStateException(String.format("Expected to update %d rows, updated %d", moving.size(), updated));
+            }
+            return moving;
+        } catch (final SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private static String placeholders(final int count) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append((i == 0) ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private void bind(final PreparedStatement ps, final Object id, final State<T> current, final State<T> next) throws SQLException {
+        ps.setObject(1, toColumn(next));
+        ps.setObject(2, id);
+        ps.setObject(3, toColumn(current));
+    }
+
+    /**
+     * Enum States are stored by name, numeric States by code
+     */
+    private Object toColumn(final State<T> state) {
+        final Object value = getCodec().encode(state.getName());
+        return (value instanceof Enum) ? ((Enum<?>) value).name() : value;
+    }
+
+    private String selectState(final Connection con, final Object id) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(selectSql)) {
+            ps.setObject(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? getCodec().decode(rs.getObject(1)) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.statefulj.persistence.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.annotation.Id;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.StateUpdate;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.StateImpl;
+
+public class JdbcPersisterTest {
+
+    public static class Invoice {
+        @Id
+        Long id;
+
+        @org.statefulj.persistence.annotations.State
+        String state;
+
+        Invoice(final Long id) {
+            this.id = id;
+        }
+    }
+
+    public enum Status {
+        stateA, stateB, stateC
+    }
+
+    public static class Shipment {
+        @Id
+        Long id;
+
+        @org.statefulj.persistence.annotations.State
+        Status state;
+
+        Shipment(final Long id) {
+            this.id = id;
+        }
+    }
+
+    private final State<Invoice> stateA = new StateImpl<>("stateA");
+    private final State<Invoice> stateB = new StateImpl<>("stateB");
+    private final State<Invoice> stateC = new StateImpl<>("stateC");
+
+    private EmbeddedDatabase db;
+    private JdbcTemplate jdbc;
+    private JdbcPersister<Invoice> persister;
+
+    @Before
+    public void setUp() {
+        db = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.HSQL).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE Invoice (id BIGINT PRIMARY KEY, state VARCHAR(32))");
+        persister = new JdbcPersister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Invoice.class, db);
+    }
+
+    @After
+    public void tearDown() {
+        db.shutdown();
+    }
+
+    @Test
+    public void testValidStateChange() throws StaleStateException {
+        jdbc.update("INSERT INTO Invoice (id, state) VALUES (1, NULL)");
+        final Invoice invoice = new Invoice(1L);
+
+        assertEquals(stateA, persister.getCurrent(invoice));
+
+        persister.setCurrent(invoice, stateA, stateB);
+        assertEquals(stateB, persister.getCurrent(invoice));
+        assertEquals("stateB", dbState(1));
+
+        persister.setCurrent(invoice, stateB, stateC);
+        assertEquals(stateC, persister.getCurrent(invoice));
+        assertEquals("stateC", dbState(1));
+    }
+
+    @Test
+    public void testStaleStateChange() throws StaleStateException {
+        jdbc.update("INSERT INTO Invoice (id, state) VALUES (1, 'stateA')");
+        final Invoice invoice = new Invoice(1L);
+        invoice.state = "stateA";
+
+        jdbc.update("UPDATE Invoice SET state = 'stateC' WHERE id = 1");
+
+        try {
+            persister.setCurrent(invoice, stateA, stateB);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            // Expected
+        }
+        assertEquals(stateC, persister.getCurrent(invoice));
+        assertEquals("stateC", dbState(1));
+
+        // Unsaved entities are only updated in memory
+        //
+        final Invoice unsaved = new Invoice(null);
+        persister.setCurrent(unsaved, stateA, stateB);
+        assertEquals(stateB, persister.getCurrent(unsaved));
+    }
+
+    @Test
+    public void testBatchStateChange() {
+        persister.setBatchSize(2);
+        for (long id = 1; id <= 5; id++) {
+            jdbc.update("INSERT INTO Invoice (id, state) VALUES (?, 'stateB')", id);
+        }
+        jdbc.update("UPDATE Invoice SET state = 'stateC' WHERE id = 4");
+
+        final List<StateUpdate<Invoice>> updates = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            final Invoice invoice = new Invoice(id);
+            invoice.state = "stateB";
+            updates.add(new StateUpdate<>(invoice, stateB, stateC));
+        }
+        final Invoice missing = new Invoice(6L);
+        missing.state = "stateB";
+        updates.add(new StateUpdate<>(missing, stateB, stateC));
+
+        final List<StateUpdate<Invoice>> stale = persister.setCurrentAll(updates);
+
+        assertEquals(2, stale.size());
+        assertSame(updates.get(3), stale.get(0));
+        assertSame(updates.get(5), stale.get(1));
+        for (final int i : new int[] { 0, 1, 2, 4 }) {
+            assertEquals(stateC, persister.getCurrent(updates.get(i).getStateful()));
+            assertEquals("stateC", dbState(i + 1));
+        }
+        assertNull(dbState(6));
+        assertEquals(Integer.valueOf(5), jdbc.queryForObject("SELECT COUNT(*) FROM Invoice WHERE state = 'stateC'", Integer.class));
+    }
+
+    @Test
+    public void testTransitionAll() {
+        persister.setBatchSize(3);
+        for (long id = 1; id <= 10; id++) {
+            jdbc.update("INSERT INTO Invoice (id, state) VALUES (?, ?)", id, ((id % 3) == 0) ? "stateC" : null);
+        }
+
+        final List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 11; id++) {
+            ids.add(id);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            persister.setExecutor(executor);
+            final List<Long> moved = persister.transitionAll(ids, stateA, stateB);
+            assertEquals(Arrays.asList(1L, 2L, 4L, 5L, 7L, 8L, 10L), moved);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Integer.valueOf(7), jdbc.queryForObject("SELECT COUNT(*) FROM Invoice WHERE state = 'stateB'", Integer.class));
+        assertEquals("stateC", dbState(3));
+
+        persister.setExecutor(null);
+        assertEquals(Arrays.asList(3L, 6L, 9L), persister.transitionAll(ids, stateC, stateA));
+        assertEquals(Arrays.asList(), persister.transitionAll(ids, stateC, stateA));
+    }
+
+    @Test
+    public void testBatchStateChangeWithoutCounts() {
+        for (long id = 1; id <= 3; id++) {
+            jdbc.update("INSERT INTO Invoice (id, state) VALUES (?, 'stateB')", id);
+        }
+        jdbc.update("UPDATE Invoice SET state = 'stateA' WHERE id = 2");
+
+        // The driver reports every statement of the batch as SUCCESS_NO_INFO
+        //
+        final JdbcPersister<Invoice> noInfo = new JdbcPersister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Invoice.class, new DelegatingDataSource(db) {
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return withoutCounts(super.getConnection());
+            }
+        });
+
+        final List<StateUpdate<Invoice>> updates = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            final Invoice invoice = new Invoice(id);
+            invoice.state = "stateB";
+            updates.add(new StateUpdate<>(invoice, stateB, stateC));
+        }
+
+        final List<StateUpdate<Invoice>> stale = noInfo.setCurrentAll(updates);
+
+        assertEquals(1, stale.size());
+        assertSame(updates.get(1), stale.get(0));
+        assertEquals(stateA, noInfo.getCurrent(updates.get(1).getStateful()));
+        assertEquals(stateC, noInfo.getCurrent(updates.get(0).getStateful()));
+        assertEquals(stateC, noInfo.getCurrent(updates.get(2).getStateful()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDataSourceRequired() {
+        new JdbcPersister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Invoice.class, (DataSource) null);
+    }
+
+    @Test
+    public void testEnumStateField() throws StaleStateException {
+        final State<Shipment> shipmentA = new StateImpl<>("stateA");
+        final State<Shipment> shipmentB = new StateImpl<>("stateB");
+        final JdbcPersister<Shipment> shipments = new JdbcPersister<>(Arrays.asList(shipmentA, shipmentB), null, shipmentA, Shipment.class, db);
+
+        jdbc.execute("CREATE TABLE Shipment (id BIGINT PRIMARY KEY, state VARCHAR(32))");
+        jdbc.update("INSERT INTO Shipment (id, state) VALUES (1, NULL)");
+        final Shipment shipment = new Shipment(1L);
+
+        shipments.setCurrent(shipment, shipmentA, shipmentB);
+        assertEquals(Status.stateB, shipment.state);
+        assertEquals(shipmentB, shipments.getCurrent(shipment));
+        assertEquals("stateB", jdbc.queryForObject("SELECT state FROM Shipment WHERE id = 1", String.class));
+
+        shipment.state = Status.stateA;
+        try {
+            shipments.setCurrent(shipment, shipmentA, shipmentB);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(shipmentB, e.getCurrent(shipment));
+        }
+        assertEquals(Status.stateB, shipment.state);
+    }
+
+    private static Connection withoutCounts(final Connection con) {
+        return proxy(Connection.class, con, (method, args, result) -> (result instanceof PreparedStatement) ? proxy(PreparedStatement.class, result, (psMethod, psArgs, counts) -> {
+            if ("executeBatch".equals(psMethod.getName())) {
+                Arrays.fill((int[]) counts, Statement.SUCCESS_NO_INFO);
+            }
+            return counts;
+        }) : result);
+    }
+
+    private interface ResultHandler {
+        Object handle(Method method, Object[] args, Object result);
+    }
+
+    private static <I> I proxy(final Class<I> type, final Object target, final ResultHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            try {
+                return handler.handle(method, args, method.invoke(target, args));
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    private String dbState(final long id) {
+        final List<String> states = jdbc.queryForList("SELECT state FROM Invoice WHERE id = ?", String.class, id);
+        return states.isEmpty() ? null : states.get(0);
+    }
+}
@@ -0,0 +1,444 @@
+package org.statefulj.persistence.journal;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only log of State changes, kept in memory mapped segment files, with an in-memory index of the current State of every key. Each change is a record
+ * of the key, the previous and next State, the event and a timestamp, followed by a CRC. When a segment is full the Journal rolls to a new one and writes a
+ * snapshot of the index. The previous snapshot and the segments written since are kept until the next snapshot is written, older ones are deleted. On start
+ * up the Journal loads the latest snapshot, or the previous one if the latest can't be read, and replays the segments written after it, up to the first
+ * incomplete record.
+ * <p>
+ * Records reach the page cache as they are appended, so they survive a crash of the process. Set syncWrites to force each record to disk to survive a crash of
+ * the host as well.
+ */
+public class Journal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    // Record length and CRC
+    //
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    private final Map<String, String> index = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private final CRC32 crc = new CRC32();
+
+    private boolean syncWrites = false;
+
+    private long sequence;
+
+    private MappedByteBuffer segment;
+
+    private boolean closed = false;
+
+    public Journal(final File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory
+     *            The directory of the segment and snapshot files, created if it doesn't exist
+     * @param segmentSize
+     *            Size in bytes of a segment file
+     */
+    public Journal(final File directory, final int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        recover();
+    }
+
+    /**
+     * @return The current State of the key, null if no State change was recorded for it
+     */
+    public String get(final String key) {
+        return index.get(key);
+    }
+
+    /**
+     * @return The number of keys in the index
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Record a State change and update the index. Callers must serialize changes to the same key
+     *
+     * @param key
+     *            The key of the Stateful Entity
+     * @param from
+     *            The previous State
+     * @param to
+     *            The next State
+     * @param event
+     *            The event, may be null
+     */
+    public void append(final String key, final String from, final String to, final String event) throws IOException {
+        final byte[] body = encode(System.currentTimeMillis(), key, from, to, event);
+        if ((body.length + HEADER_SIZE) > segmentSize) {
+            throw new IllegalArgumentException(String.format("Record of %d bytes doesn't fit in a segment of %d bytes", body.length, segmentSize));
+        }
+
+        long rolled = -1;
+        writeLock.lock();
+        try {
+            if (segment.remaining() < (body.length + HEADER_SIZE)) {
+                roll();
+                rolled = sequence;
+            }
+            write(body);
+            index.put(key, to);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (rolled >= 0) {
+            snapshot(rolled);
+        }
+    }
+
+    /**
+     * Roll to a new segment and write a snapshot of the index, so the older segments can be deleted
+     */
+    public void snapshot() throws IOException {
+        final long snapshotSequence;
+        writeLock.lock();
+        try {
+            roll();
+            snapshotSequence = sequence;
+        } finally {
+            writeLock.unlock();
+        }
+        snapshot(snapshotSequence);
+    }
+
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(final boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (!closed) {
+                segment.force();
+                closed = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(final byte[] body) throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        crc.reset();
+        crc.update(body, 0, body.length);
+
+        // The length goes last, a reader stops at the first record with a zero length
+        //
+        final int position = segment.position();
+        segment.position(position + 4);
+        segment.putInt((int) crc.getValue());
+        segment.put(body);
+        segment.putInt(position, body.length);
+        if (syncWrites) {
+            segment.force();
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        open(sequence + 1, 0);
+    }
+
+    private void open(final long sequence, final int position) throws IOException {
+        final File file = file(sequence, SEGMENT_SUFFIX);
+        final int size = (int) Math.max(segmentSize, file.length());
+        // The mapping stays valid once the file is closed
+        //
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            this.segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        this.segment.position(position);
+        this.sequence = sequence;
+    }
+
+    private void snapshot(final long snapshotSequence) throws IOException {
+        snapshotLock.lock();
+        try {
+            // The index may already hold records of the new segment, replaying them again on recovery is harmless
+            //
+            final Map<String, String> copy = new HashMap<>(index);
+            final File tmp = new File(directory, "snapshot.tmp");
+            final CRC32 checksum = new CRC32();
+            try (FileOutputStream file = new FileOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, checksum))) {
+                out.writeInt(copy.size());
+                for (final Map.Entry<String, String> entry : copy.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                out.flush();
+                final long value = checksum.getValue();
+                out.writeLong(value);
+                out.flush();
+
+                // The segments are deleted below, so the snapshot must be on disk first
+                //
+                file.getFD().sync();
+            }
+            Files.move(tmp.toPath(), file(snapshotSequence, SNAPSHOT_SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+
+            // Keep the previous snapshot and the segments after it, recovery falls back to them if this snapshot can't be read
+            //
+            long retained = 0;
+            for (final Long older : sequences(SNAPSHOT_SUFFIX)) {
+                if (older < snapshotSequence) {
+                    retained = older;
+                }
+            }
+            for (final Long older : sequences(SEGMENT_SUFFIX)) {
+                if (older < retained) {
+                    Files.deleteIfExists(file(older, SEGMENT_SUFFIX).toPath());
+                }
+            }
+            for (final Long older : sequences(SNAPSHOT_SUFFIX)) {
+                if (older < retained) {
+                    Files.deleteIfExists(file(older, SNAPSHOT_SUFFIX).toPath());
+                }
+            }
+            logger.debug("Wrote snapshot {} of {} keys", snapshotSequence, copy.size());
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Make the rename of the snapshot durable. Not every platform can open a directory, where it can't the rename is left to the file system
+     */
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (final IOException e) {
+            logger.debug("Unable to sync directory {}", directory, e);
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = 0;
+        final List<Long> snapshots = sequences(SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (loadSnapshot(snapshots.get(i))) {
+                start = snapshots.get(i);
+                break;
+            }
+        }
+
+        // The segments before the oldest one were covered by a snapshot, replaying without it would silently lose keys
+        //
+        final List<Long> segments = sequences(SEGMENT_SUFFIX);
+        if (!segments.isEmpty() && (segments.get(0) > start)) {
+            throw new IOException(String.format("Unable to recover journal %s, the segments before %d were deleted and no snapshot covering them can be read",
+                    directory, segments.get(0)));
+        }
+
+        long last = start;
+        int position = 0;
+        int records = 0;
+        for (final Long seq : segments) {
+            if (seq >= start) {
+                final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file(seq, SEGMENT_SUFFIX).toPath()));
+                records += replay(buffer);
+                last = seq;
+                position = buffer.position();
+            }
+        }
+        open(last, position);
+        logger.debug("Recovered {} keys, replayed {} records from segment {}", index.size(), records, start);
+    }
+
+    private boolean loadSnapshot(final long seq) {
+        final File file = file(seq, SNAPSHOT_SUFFIX);
+        final CRC32 checksum = new CRC32();
+        final Map<String, String> entries = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(Files.newInputStream(file.toPath()), checksum))) {
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                entries.put(in.readUTF(), in.readUTF());
+            }
+            final long expected = checksum.getValue();
+            if (in.readLong() != expected) {
+                logger.warn("Ignoring corrupt snapshot {}", file);
+                return false;
+            }
+        } catch (final IOException e) {
+            logger.warn("Ignoring unreadable snapshot {}", file, e);
+            return false;
+        }
+        index.clear();
+        index.putAll(entries);
+        return true;
+    }
+
+    /**
+     * Apply the records of a segment to the index, leaving the buffer positioned after the last complete record
+     *
+     * @return The number of records applied
+     */
+    private int replay(final ByteBuffer buffer) {
+        final CRC32 checksum = new CRC32();
+        int records = 0;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int position = buffer.position();
+            final int length = buffer.getInt();
+            final int expected = buffer.getInt();
+            if ((length <= 0) || (length > buffer.remaining())) {
+                buffer.position(position);
+                break;
+            }
+            final byte[] body = new byte[length];
+            buffer.get(body);
+            checksum.reset();
+            checksum.update(body, 0, length);
+            if ((int) checksum.getValue() != expected) {
+                logger.warn("Truncating journal at corrupt record, segment position {}", position);
+                buffer.position(position);
+                break;
+            }
+            try {
+                final ByteBuffer record = ByteBuffer.wrap(body);
+                record.getLong();
+                final String key = readString(record);
+                readString(record);
+                index.put(key, readString(record));
+            } catch (final BufferUnderflowException e) {
+                buffer.position(position);
+                break;
+            }
+            records++;
+        }
+        return records;
+    }
+
+    private byte[] encode(final long timestamp, final String key, final String from, final String to, final String event) {
+        final byte[] keyBytes = bytes(key);
+        final byte[] fromBytes = bytes(from);
+        final byte[] toBytes = bytes(to);
+        final byte[] eventBytes = bytes(event);
+        final ByteBuffer body = ByteBuffer.allocate(8 + 8 + length(keyBytes) + length(fromBytes) + length(toBytes) + length(eventBytes));
+        body.putLong(timestamp);
+        putString(body, keyBytes);
+        putString(body, fromBytes);
+        putString(body, toBytes);
+        putString(body, eventBytes);
+        return body.array();
+    }
+
+    private static byte[] bytes(final String value) {
+        return (value == null) ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(final byte[] value) {
+        return (value == null) ? 0 : value.length;
+    }
+
+    private static void putString(final ByteBuffer buffer, final byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            if (value.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Value of %d bytes is too long for the journal", value.length));
+            }
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private File file(final long seq, final String suffix) {
+        return new File(directory, String.format("%016d%s", seq, suffix));
+    }
+
+    private List<Long> sequences(final String suffix) {
+        final List<Long> sequences = new ArrayList<>();
+        final String[] names = directory.list();
+        if (names != null) {
+            for (final String name : names) {
+                if (name.endsWith(suffix)) {
+                    try {
+                        sequences.add(Long.parseLong(name.substring(0, name.length() - suffix.length())));
+                    } catch (final NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+}
@@ -0,0 +1,114 @@
+package org.statefulj.persistence.journal;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.annotation.Id;
+import org.statefulj.common.utils.ReflectionUtils;
+import org.statefulj.common.utils.StripedLock;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.model.State;
+import org.statefulj.persistence.common.AbstractPersister;
+import org.statefulj.persistence.common.StateFieldCodec;
+
+/**
+ * Persists the State in a {@link Journal}. The Journal is the source of truth: the current State of a Stateful Entity is looked up in the Journal's index by
+ * the fully qualified class name and id of the Stateful Entity and copied into its State field. Every State change is appended to the Journal along with the
+ * event that caused it. A single Journal can be shared by the Persisters of several Stateful Entity classes. Stateful Entities without an id are updated in
+ * memory only
+ */
+public class JournalPersister<T> extends AbstractPersister<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalPersister.class);
+
+    private final StripedLock locks = new StripedLock();
+
+    private Journal journal;
+
+    public JournalPersister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz) {
+        this(states, stateFieldName, start, clazz, null);
+    }
+
+    public JournalPersister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz, final Journal journal) {
+        super(states, stateFieldName, start, clazz);
+        this.journal = journal;
+    }
+
+    @Override
+    public State<T> getCurrent(final T stateful) {
+        try {
+            final Object id = getId(stateful);
+            final String state = (id != null) ? journal.get(key(id)) : null;
+            if (state != null) {
+                setState(stateful, state);
+            }
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        return super.getCurrent(stateful);
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
+        setCurrent(stateful, current, next, null);
+    }
+
+    @Override
+    public void setCurrent(final T stateful, final State<T> current, final State<T> next, final String event) throws StaleStateException {
+        try {
+            final Object id = getId(stateful);
+            final Lock lock = (id != null) ? locks.getByKey(key(id)) : locks.get(stateful);
+            lock.lock();
+            try {
+                String state = (id != null) ? journal.get(key(id)) : getState(stateful);
+                state = (state == null) ? getStart().getName() : state;
+                if (!state.equals(current.getName())) {
+                    JournalPersister.logger.warn("Stale State, expected={}, actual={}", current.getName(), state);
+                    setState(stateful, state);
+                    throwStaleState(stateful, current, state);
+                }
+                if ((id != null) && !current.equals(next)) {
+                    journal.append(key(id), current.getName(), next.getName(), event);
+                }
+                setState(stateful, next.getName());
+            } finally {
+                lock.unlock();
+            }
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    public void setJournal(final Journal journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    protected boolean validStateField(final Field stateField) {
+        return StateFieldCodec.supports(stateField.getType());
+    }
+
+    @Override
+    protected Field findIdField(final Class<?> clazz) {
+        final Field idField = ReflectionUtils.getReferencedField(clazz, Id.class);
+        return (idField != null) ? idField : ReflectionUtils.getField(clazz, "id");
+    }
+
+    private String key(final Object id) {
+        return getClazz().getName() + ":" + id;
+    }
+}
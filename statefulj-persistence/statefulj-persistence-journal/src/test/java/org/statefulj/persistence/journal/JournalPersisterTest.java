@@ -0,0 +1,167 @@
+package org.statefulj.persistence.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.annotation.Id;
+import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.StateImpl;
+
+public class JournalPersisterTest {
+
+    public static class Ticket {
+        @Id
+        Long id;
+
+        @org.statefulj.persistence.annotations.State
+        String state;
+
+        Ticket(final Long id) {
+            this.id = id;
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final State<Ticket> stateA = new StateImpl<>("stateA");
+    private final State<Ticket> stateB = new StateImpl<>("stateB");
+    private final State<Ticket> stateC = new StateImpl<>("stateC");
+    private final List<State<Ticket>> states = Arrays.asList(stateA, stateB, stateC);
+
+    @Test
+    public void testStateChangesAndRecovery() throws Exception {
+        final File dir = folder.newFolder();
+
+        // Small segments, so the Journal rolls and snapshots along the way
+        //
+        Journal journal = new Journal(dir, 256);
+        JournalPersister<Ticket> persister = new JournalPersister<>(states, null, stateA, Ticket.class, journal);
+
+        for (long id = 1; id <= 20; id++) {
+            final Ticket ticket = new Ticket(id);
+            assertEquals(stateA, persister.getCurrent(ticket));
+            persister.setCurrent(ticket, stateA, stateB, "eventA");
+            if ((id % 2) == 0) {
+                persister.setCurrent(ticket, stateB, stateC, "eventB");
+            }
+        }
+
+        final Ticket outdated = new Ticket(2L);
+        outdated.state = stateB.getName();
+        try {
+            persister.setCurrent(outdated, stateB, stateC);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(stateC, e.getCurrent(outdated));
+        }
+        assertEquals(stateC.getName(), outdated.state);
+
+        // Entities without an id are only updated in memory
+        //
+        final Ticket unsaved = new Ticket(null);
+        persister.setCurrent(unsaved, stateA, stateB);
+        assertEquals(stateB, persister.getCurrent(unsaved));
+        assertEquals(20, journal.size());
+
+        journal.close();
+        assertEquals(2, dir.list((d, name) -> name.endsWith(".snap")).length);
+        assertTrue(dir.list((d, name) -> name.endsWith(".log")).length <= 2);
+
+        journal = new Journal(dir, 256);
+        persister = new JournalPersister<>(states, null, stateA, Ticket.class, journal);
+        assertEquals(20, journal.size());
+        for (long id = 1; id <= 20; id++) {
+            final Ticket ticket = new Ticket(id);
+            assertEquals(((id % 2) == 0) ? stateC : stateB, persister.getCurrent(ticket));
+            assertEquals(persister.getCurrent(ticket).getName(), ticket.state);
+        }
+        journal.close();
+    }
+
+    @Test
+    public void testCorruptSnapshot() throws IOException {
+        final File dir = folder.newFolder();
+        Journal journal = new Journal(dir, 256);
+        for (int i = 1; i <= 20; i++) {
+            journal.append("Ticket:" + i, stateA.getName(), stateB.getName(), null);
+        }
+        journal.close();
+
+        // The previous snapshot and its segments are kept, so recovery falls back to them
+        //
+        final String[] snapshots = dir.list((d, name) -> name.endsWith(".snap"));
+        Arrays.sort(snapshots);
+        assertEquals(2, snapshots.length);
+        corrupt(new File(dir, snapshots[1]));
+        journal = new Journal(dir, 256);
+        assertEquals(20, journal.size());
+        journal.close();
+
+        // Without a readable snapshot the older keys are gone, which must not go unnoticed
+        //
+        corrupt(new File(dir, snapshots[0]));
+        try {
+            new Journal(dir, 256);
+            fail("Expected IOException");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().startsWith("Unable to recover journal"));
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException, StaleStateException {
+        final File dir = folder.newFolder();
+        Journal journal = new Journal(dir, 4096);
+        final JournalPersister<Ticket> persister = new JournalPersister<>(states, null, stateA, Ticket.class, journal);
+        final Ticket ticket = new Ticket(1L);
+        persister.setCurrent(ticket, stateA, stateB, "eventA");
+        journal.close();
+
+        // Simulate a crash in the middle of the next record: a length but a bad CRC
+        //
+        final File segment = dir.listFiles((d, name) -> name.endsWith(".log"))[0];
+        final long end;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.seek(0);
+            end = 8 + raf.readInt();
+            raf.seek(end);
+            raf.writeInt(16);
+            raf.writeInt(12345);
+        }
+
+        journal = new Journal(dir, 4096);
+        assertEquals(stateB.getName(), journal.get(Ticket.class.getName() + ":1"));
+        assertNull(journal.get("Ticket:2"));
+
+        // The torn record is overwritten by the next append
+        //
+        journal.append("Ticket:2", stateA.getName(), stateC.getName(), null);
+        journal.close();
+        journal = new Journal(dir, 4096);
+        assertEquals(stateB.getName(), journal.get(Ticket.class.getName() + ":1"));
+        assertEquals(stateC.getName(), journal.get("Ticket:2"));
+        journal.close();
+    }
+
+    private static void corrupt(final File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            final int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 0xff);
+        }
+    }
+}
@@ -1,42 +1,94 @@
 package org.statefulj.persistence.jpa;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
 
 import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.Id;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
+import javax.persistence.PersistenceException;
 import javax.persistence.Query;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.CriteriaUpdate;
-import javax.persistence.criteria.Path;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.Version;
 
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.statefulj.common.utils.ReflectionUtils;
-import org.statefulj.fsm.Persister;
+import org.statefulj.common.utils.StripedLock;
+import org.statefulj.fsm.BulkPersister;
+import org.statefulj.fsm.NotifyingPersister;
 import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.StateChangeMonitor;
+import org.statefulj.fsm.StateUpdate;
 import org.statefulj.fsm.model.State;
 import org.statefulj.persistence.common.AbstractPersister;
+import org.statefulj.persistence.common.StateFieldCodec;
 
-public class JPAPerister<T> extends AbstractPersister<T> implements Persister<T> {
+public class JPAPerister<T> extends AbstractPersister<T> implements NotifyingPersister<T>, BulkPersister<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(JPAPerister.class);
 
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private boolean useVersion = false;
+
+    private final StateChangeMonitor monitor = new StateChangeMonitor();
+    private final StripedLock locks = new StripedLock();
+
     private EntityManager entityManager;
 
     private PlatformTransactionManager transactionManager;
 
+    private String updateJpql;
+
+    private String updateStartJpql;
+
+    private String selectJpql;
+
+    private String lockJpql;
+
+    private String batchUpdateJpql;
+
+    private String batchUpdateStartJpql;
+
+    private String versionedUpdateJpql;
+
+    private String versionedBatchUpdateJpql;
+
+    private String versionedBatchUpdateStartJpql;
+
+    /**
+     * The Persister uses a shared EntityManager, which delegates to the EntityManager bound to the current transaction, so it can be used from any number of
+     * threads
+     */
     public JPAPerister(final List<State<T>> states, final State<T> start, final Class<T> clazz, final EntityManagerFactoryInfo entityManagerFactory,
             final PlatformTransactionManager transactionManager) {
-        this(states, null, start, clazz, entityManagerFactory.getNativeEntityManagerFactory().createEntityManager(), transactionManager);
+        this(states, null, start, clazz, SharedEntityManagerCreator.createSharedEntityManager(toEntityManagerFactory(entityManagerFactory)), transactionManager);
     }
 
     public JPAPerister(final List<State<T>> states, final String stateFieldName, final State<T> start, final Class<T> clazz, final EntityManager entityManager,
@@ -44,8 +96,19 @@ public class JPAPerister<T> extends AbstractPersister<T> implements Persister<T>
         super(states, stateFieldName, start, clazz);
         this.transactionManager = transactionManager;
         this.entityManager = entityManager;
+        buildStatements();
+    }
+
+    private static EntityManagerFactory toEntityManagerFactory(final EntityManagerFactoryInfo entityManagerFactory) {
+        // Prefer the Spring proxy, it's the key transactions bind their EntityManager under
+        //
+        return (entityManagerFactory instanceof EntityManagerFactory) ? (EntityManagerFactory) entityManagerFactory : entityManagerFactory.getNativeEntityManagerFactory();
     }
 
+    /**
+     * Joins the caller's transaction if there is one on the calling thread, otherwise the update runs in its own transaction. Stateful Entities that aren't
+     * persisted, or aren't managed by the caller's transaction, are only updated in memory
+     */
     @Override
     public void setCurrent(final T stateful, final State<T> current, final State<T> next) throws StaleStateException {
         try {
@@ -53,6 +116,13 @@ public class JPAPerister<T> extends AbstractPersister<T> implements Persister<T>
             if ((id != null) && entityManager.contains(stateful)) {
                 updateStateInDB(stateful, current, next, id);
                 setState(stateful, next.getName());
+                if (!current.equals(next)) {
+                    signalChange(id);
+                }
+            } else if ((id != null) && !TransactionSynchronizationManager.isActualTransactionActive() && updateStateInTransaction(stateful, current, next, id)) {
+                if (!current.equals(next)) {
+                    signalChange(id);
+                }
             } else {
                 updateStateInMemory(stateful, current, next);
             }
@@ -67,64 +137,413 @@ public class JPAPerister<T> extends AbstractPersister<T> implements Persister<T>
         }
     }
 
+    /**
+     * Updates are grouped by their current and next State and committed in chunks of batchSize. Each chunk locks the rows that are still in the expected State
+     * with a single select and moves them with a single update, so a batch costs two statements per chunk instead of one per Stateful Entity. Outside a
+     * transaction each Stateful Entity is updated in a transaction of its own, see {@link #setCurrent(Object, State, State)}
+     */
+    @Override
+    public List<StateUpdate<T>> setCurrentAll(final List<StateUpdate<T>> updates) {
+        if (useVersion || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Every row is matched on its own version, so there is no common predicate to batch on. Outside a transaction there are no managed Stateful
+            // Entities to batch
+            //
+            return NotifyingPersister.super.setCurrentAll(updates);
+        }
+
+        final List<StateUpdate<T>> stale = new LinkedList<>();
+        final Map<String, List<StateUpdate<T>>> groups = new LinkedHashMap<>();
+
+        try {
+            for (final StateUpdate<T> update : updates) {
+                final T stateful = update.getStateful();
+                if ((getId(stateful) != null) && entityManager.contains(stateful)) {
+                    final String key = update.getCurrent().getName() + "->" + update.getNext().getName();
+                    List<StateUpdate<T>> group = groups.get(key);
+                    if (group == null) {
+                        group = new ArrayList<>();
+                        groups.put(key, group);
+                    }
+                    group.add(update);
+                } else {
+                    try {
+                        updateStateInMemory(stateful, update.getCurrent(), update.getNext());
+                    } catch (final StaleStateException e) {
+                        stale.add(update);
+                    }
+                }
+            }
+
+            for (final List<StateUpdate<T>> group : groups.values()) {
+                for (int i = 0; i < group.size(); i += batchSize) {
+                    updateStatesInDB(group.subList(i, Math.min(i + batchSize, group.size())), stale);
+                }
+            }
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final SecurityException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+
+        return stale;
+    }
+
+    /**
+     * Each chunk of batchSize ids locks the rows still in the from State with a single select and moves them with a single update, which also increments the
+     * version in version mode. A chunk joins the caller's transaction if there is one on the calling thread, otherwise it runs in its own transaction
+     */
+    @Override
+    public <ID> List<ID> transitionAll(final Collection<ID> ids, final State<T> from, final State<T> to) {
+        return transitionInChunks(ids, batchSize, chunk -> {
+            final TransactionTemplate tt = new TransactionTemplate(transactionManager);
+            return tt.execute(status -> transitionInDB(chunk, from, to));
+        });
+    }
+
+    /**
+     * The persisted State is read once the waiter is registered, so a change committed before the call returns right away. After that waiters are only woken
+     * up by changes made through a JPAPerister of this JVM; changes made elsewhere are picked up once the timeout elapses. Stateful Entities without an id
+     * can't be signaled, so the call just waits for the timeout
+     */
+    @Override
+    public boolean awaitChange(final T stateful, final State<T> current, final long timeout) throws InterruptedException {
+        try {
+            final Object id = getId(stateful);
+            if (id == null) {
+                Thread.sleep(timeout);
+                return false;
+            }
+
+            if (!monitor.await(id, () -> !current.getName().equals(readState(id)), timeout)) {
+                return false;
+            }
+
+            // Refresh the State of the Stateful Entity from the database
+            //
+            setState(stateful, readState(id));
+            return true;
+        } catch (final NoSuchFieldException e) {
+            throw new RuntimeException(e);
+        } catch (final IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean isUseVersion() {
+        return useVersion;
+    }
+
+    /**
+     * Detect concurrent changes with the @Version field of the Stateful Entity instead of the value of the State. A change is then rejected even if the State
+     * went full circle back to the expected value (A->B->A). The State and incremented version are written back to the managed Stateful Entity, so the next
+     * flush doesn't trip over the old version. The @Version field must be numeric
+     *
+     * @param useVersion
+     *            true to match on the version
+     */
+    public void setUseVersion(final boolean useVersion) {
+        if (useVersion && (getVersionField() == null)) {
+            throw new RuntimeException(String.format("No Version field defined for %s", getClazz()));
+        }
+        if (useVersion && !isNumeric(getVersionField().getType())) {
+            throw new RuntimeException(String.format("Version field %s of %s must be numeric, was %s", getVersionField().getName(), getClazz(), getVersionField().getType()));
+        }
+        this.useVersion = useVersion;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    private void signalChange(final Object id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    monitor.signal(id);
+                }
+            });
+        } else {
+            monitor.signal(id);
+        }
+    }
+
+    private void updateStatesInDB(final List<StateUpdate<T>> updates, final List<StateUpdate<T>> stale) throws NoSuchFieldException, IllegalAccessException {
+        final State<T> current = updates.get(0).getCurrent();
+        final State<T> next = updates.get(0).getNext();
+
+        final Map<Object, StateUpdate<T>> byId = new HashMap<>();
+        for (final StateUpdate<T> update : updates) {
+            if (byId.putIfAbsent(getId(update.getStateful()), update) != null) {
+                stale.add(update);
+            }
+        }
+
+        final Map<Object, String> dbStates = new HashMap<>();
+        for (final Tuple row : buildLockingQuery(byId.keySet()).getResultList()) {
+            dbStates.put(row.get(0), getCodec().decode(row.get(1)));
+        }
+
+        final List<Object> matching = new ArrayList<>(byId.size());
+        for (final Map.Entry<Object, StateUpdate<T>> entry : byId.entrySet()) {
+            final String state = dbStates.get(entry.getKey());
+            if (dbStates.containsKey(entry.getKey()) && (current.getName().equals(state) || ((state == null) && current.equals(getStart())))) {
+                matching.add(entry.getKey());
+            } else {
+                JPAPerister.logger.warn("Stale State, expected={}, actual={}", current.getName(), state);
+                setState(entry.getValue().getStateful(), state);
+                stale.add(entry.getValue());
+            }
+        }
+
+        if (!matching.isEmpty()) {
+            final int updated = buildBatchUpdate(matching, current, next).executeUpdate();
+            if (updated != matching.size()) {
+                throw new IllegalStateException(String.format("Expected to update %d rows, updated %d", matching.size(), updated));
+            }
+            for (final Object id : matching) {
+                setState(byId.get(id).getStateful(), next.getName());
+                if (!current.equals(next)) {
+                    signalChange(id);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <ID> List<ID> transitionInDB(final List<ID> ids, final State<T> from, final State<T> to) {
+        final List<ID> moving = new ArrayList<>(ids.size());
+        for (final Tuple row : buildLockingQuery(new ArrayList<Object>(ids)).getResultList()) {
+            final String state = getCodec().decode(row.get(1));
+            if (from.getName().equals(state) || ((state == null) && from.equals(getStart()))) {
+                moving.add((ID) row.get(0));
+            }
+        }
+        if (moving.isEmpty()) {
+            return moving;
+        }
+
+        final String jpql;
+        if (useVersion) {
+            jpql = from.equals(getStart()) ? versionedBatchUpdateStartJpql : versionedBatchUpdateJpql;
+        } else {
+            jpql = from.equals(getStart()) ? batchUpdateStartJpql : batchUpdateJpql;
+        }
+        final int updated = entityManager.createQuery(jpql).setParameter("ids", moving).setParameter("current", getCodec().encode(from.getName()))
+                .setParameter("next", getCodec().encode(to.getName())).executeUpdate();
+        if (updated != moving.size()) {
+            throw new IllegalStateException(String.format("Expected to update %d rows, updated %d", moving.size(), updated));
+        }
+        if (!from.equals(to)) {
+            for (final ID id : moving) {
+                signalChange(id);
+            }
+        }
+        return moving;
+    }
+
+    /**
+     * The statements only differ in their parameters between calls, so they are built once and the provider can reuse its compiled plan for them
+     */
+    private void buildStatements() {
+        final Entity entity = getClazz().getAnnotation(Entity.class);
+        final String entityName = ((entity != null) && !entity.name().isEmpty()) ? entity.name() : getClazz().getSimpleName();
+        final String id = "t." + getIdField().getName();
+        final String state = "t." + getStateField().getName();
+
+        this.updateJpql = String.format("UPDATE %s t SET %s = :next WHERE %s = :id AND %s = :current", entityName, state, id, state);
+        this.updateStartJpql = String.format("UPDATE %s t SET %s = :next WHERE %s = :id AND (%s = :current OR %s IS NULL)", entityName, state, id, state, state);
+        this.selectJpql = String.format("SELECT %s FROM %s t WHERE %s = :id", state, entityName, id);
+        this.lockJpql = String.format("SELECT %s, %s FROM %s t WHERE %s IN :ids", id, state, entityName, id);
+        this.batchUpdateJpql = String.format("UPDATE %s t SET %s = :next WHERE %s IN :ids AND %s = :current", entityName, state, id, state);
+        this.batchUpdateStartJpql = String.format("UPDATE %s t SET %s = :next WHERE %s IN :ids AND (%s = :current OR %s IS NULL)", entityName, state, id, state, state);
+
+        if (getVersionField() != null) {
+            final String version = "t." + getVersionField().getName();
+            this.versionedUpdateJpql = String.format("UPDATE %s t SET %s = :next, %s = %s + 1 WHERE %s = :id AND %s = :version", entityName, state, version, version, id, version);
+            this.versionedBatchUpdateJpql = String.format("UPDATE %s t SET %s = :next, %s = %s + 1 WHERE %s IN :ids AND %s = :current", entityName, state, version, version, id, state);
+            this.versionedBatchUpdateStartJpql = String.format("UPDATE %s t SET %s = :next, %s = %s + 1 WHERE %s IN :ids AND (%s = :current OR %s IS NULL)", entityName, state, version,
+                    version, id, state, state);
+        }
+    }
+
+    private TypedQuery<Tuple> buildLockingQuery(final Collection<Object> ids) {
+        return entityManager.createQuery(lockJpql, Tuple.class).setParameter("ids", ids).setLockMode(LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    private Query buildBatchUpdate(final Collection<Object> ids, final State<T> current, final State<T> next) {
+        return entityManager.createQuery(current.equals(getStart()) ? batchUpdateStartJpql : batchUpdateJpql).setParameter("ids", ids)
+                .setParameter("current", getCodec().encode(current.getName())).setParameter("next", getCodec().encode(next.getName()));
+    }
+
     private void updateStateInMemory(final T stateful, final State<T> current, final State<T> next) throws NoSuchFieldException, IllegalAccessException, StaleStateException {
-        synchronized (stateful) {
+        final Lock lock = locks.get(stateful);
+        lock.lock();
+        try {
             String state = getState(stateful);
             state = (state == null) ? getStart().getName() : state;
             if (state.equals(current.getName())) {
                 setState(stateful, next.getName());
             } else {
-                throwStaleState(current, next);
+                throwStaleState(stateful, current, state);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Outside a transaction the shared EntityManager is empty, so the Stateful Entity can't be checked with contains. Load it in a transaction of its own and
+     * update it through the managed copy, then copy the State, and the version, back
+     *
+     * @return false if the Stateful Entity isn't persisted
+     */
+    private boolean updateStateInTransaction(final T stateful, final State<T> current, final State<T> next, final Object id) throws NoSuchFieldException,
+            IllegalAccessException, StaleStateException {
+        final TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        T managed = null;
+        try {
+            managed = entityManager.find(getClazz(), id);
+            if ((managed != null) && useVersion && !Objects.equals(getVersionField().get(stateful), getVersionField().get(managed))) {
+                JPAPerister.logger.warn("Stale version, expected={}, actual={}", getVersionField().get(stateful), getVersionField().get(managed));
+                throwStaleState(managed, current, getState(managed));
+            }
+            if (managed != null) {
+                updateStateInDB(managed, current, next, id);
+            }
+            transactionManager.commit(status);
+        } catch (final StaleStateException e) {
+            transactionManager.rollback(status);
+
+            // The managed copy holds the State, and version, read back from the database
+            //
+            setState(stateful, getState(managed));
+            if (useVersion) {
+                getVersionField().set(stateful, getVersionField().get(managed));
             }
+            throwStaleState(stateful, current, getState(stateful));
+        } catch (final Exception e) {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+            throw e;
+        }
+
+        if (managed == null) {
+            return false;
         }
+        setState(stateful, next.getName());
+        if (useVersion) {
+            getVersionField().set(stateful, getVersionField().get(managed));
+        }
+        return true;
     }
 
     private void updateStateInDB(final T stateful, final State<T> current, final State<T> next, final Object id) throws NoSuchFieldException, IllegalAccessException, StaleStateException {
+        if (useVersion) {
+            updateVersionedStateInDB(stateful, current, next, id);
+            return;
+        }
+
         final Query update = buildUpdate(id, stateful, current, next, getIdField(), getStateField());
 
         if (update.executeUpdate() == 0) {
-            final Query query = buildQuery(id, stateful);
-            String state = getStart().getName();
-            try {
-                final TransactionTemplate tt = new TransactionTemplate(transactionManager);
-                state = tt.execute(status -> (String) query.getSingleResult());
-            } catch (final NoResultException nre) {
-            }
+            // The update joined the caller's transaction, so read the actual State within it as well
+            //
+            final String state = selectState(buildQuery(id));
 
             JPAPerister.logger.warn("Stale State, expected={}, actual={}", current.getName(), state);
 
             setState(stateful, state);
-            throwStaleState(current, next);
+            throwStaleState(stateful, current, state);
         }
     }
 
-    protected Query buildUpdate(final Object id, final T stateful, final State<T> current, final State<T> next, final Field idField, final Field stateField)
-            throws SecurityException, IllegalArgumentException, NoSuchFieldException, IllegalAccessException {
+    private void updateVersionedStateInDB(final T stateful, final State<T> current, final State<T> next, final Object id) throws NoSuchFieldException, IllegalAccessException,
+            StaleStateException {
+        if (JPAPerister.logger.isDebugEnabled()) {
+            JPAPerister.logger.debug(versionedUpdateJpql);
+        }
+
+        // Write out pending changes first, they may increment the version the update is matched on
+        //
+        entityManager.flush();
+        final Object version = getVersionField().get(stateful);
+        final int updated = entityManager.createQuery(versionedUpdateJpql).setParameter("id", id).setParameter("version", version)
+                .setParameter("next", getCodec().encode(next.getName())).executeUpdate();
 
-        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        final CriteriaUpdate<T> cu = cb.createCriteriaUpdate(getClazz());
-        final Root<T> t = cu.from(getClazz());
+        if (updated == 0) {
+            // Another writer changed the row, read its State and version back
+            //
+            entityManager.refresh(stateful);
+            final String state = getState(stateful);
+            JPAPerister.logger.warn("Stale State, expected={}, actual={}", current.getName(), state);
+            throwStaleState(stateful, current, state);
+        }
 
-        final Path<?> idPath = t.get(getIdField().getName());
-        final Path<String> statePath = t.get(getStateField().getName());
+        setState(stateful, next.getName());
+        getVersionField().set(stateful, increment(version));
+        synchronizeSnapshot(stateful);
+    }
+
+    /**
+     * The bulk update bypassed the persistence context. Record the new State and version as the loaded state of the Stateful Entity, so the provider doesn't
+     * flush them again against the old version. Providers other than Hibernate fall back to a refresh
+     */
+    private void synchronizeSnapshot(final T stateful) {
+        try {
+            final SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            final EntityEntry entry = session.getPersistenceContext().getEntry(stateful);
+            if (entry != null) {
+                entry.postUpdate(stateful, entry.getPersister().getPropertyValues(stateful), getVersionField().get(stateful));
+                return;
+            }
+        } catch (final PersistenceException | IllegalAccessException e) {
+            JPAPerister.logger.debug("Unable to update the persistence context, refreshing", e);
+        }
+        entityManager.refresh(stateful);
+    }
 
-        cu.set(statePath, next.getName());
+    private static boolean isNumeric(final Class<?> type) {
+        return (type == long.class) || (type == Long.class) || (type == int.class) || (type == Integer.class) || (type == short.class) || (type == Short.class);
+    }
 
-        final Predicate statePredicate = (current.equals(getStart())) ? cb.or(cb.equal(statePath, current.getName()), cb.equal(statePath, cb.nullLiteral(String.class)))
-                : cb.equal(statePath, current.getName());
+    private static Object increment(final Object version) {
+        if (version instanceof Long) {
+            return (Long) version + 1;
+        } else if (version instanceof Integer) {
+            return (Integer) version + 1;
+        } else {
+            return (short) ((Short) version + 1);
+        }
+    }
 
-        cu.where(cb.and(cb.equal(idPath, getId(stateful)), statePredicate));
+    protected Query buildUpdate(final Object id, final T stateful, final State<T> current, final State<T> next, final Field idField, final Field stateField)
+            throws SecurityException, IllegalArgumentException, NoSuchFieldException, IllegalAccessException {
 
-        final Query query = entityManager.createQuery(cu);
+        final String jpql = current.equals(getStart()) ? updateStartJpql : updateJpql;
         if (JPAPerister.logger.isDebugEnabled()) {
-            JPAPerister.logger.debug(query.unwrap(org.hibernate.Query.class).getQueryString());
+            JPAPerister.logger.debug(jpql);
         }
+        final Query query = entityManager.createQuery(jpql);
+        query.setParameter("id", getId(stateful));
+        query.setParameter("current", getCodec().encode(current.getName()));
+        query.setParameter("next", getCodec().encode(next.getName()));
         return query;
     }
 
     @Override
     protected boolean validStateField(final Field stateField) {
-        return (stateField.getType().equals(String.class));
+        return StateFieldCodec.supports(stateField.getType());
     }
 
     @Override
@@ -138,27 +557,34 @@ public class JPAPerister<T> extends AbstractPersister<T> implements Persister<T>
     }
 
     @Override
-    protected Class<?> getStateFieldType() {
-        return String.class;
+    protected Field findVersionField(final Class<?> clazz) {
+        return ReflectionUtils.getReferencedField(clazz, Version.class);
     }
 
-    private Query buildQuery(final Object id, final T stateful) throws SecurityException, IllegalArgumentException, NoSuchFieldException, IllegalAccessException {
-
-        final CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
-        final CriteriaQuery<String> cq = cb.createQuery(String.class);
-
-        final Root<T> t = cq.from(getClazz());
-        final Path<?> idPath = t.get(getIdField().getName());
-        final Path<String> statePath = t.get(getStateField().getName());
-
-        cq.select(statePath);
-
-        cq.where(cb.equal(idPath, getId(stateful)));
-
-        final Query query = entityManager.createQuery(cq);
+    private Query buildQuery(final Object id) {
         if (JPAPerister.logger.isDebugEnabled()) {
-            JPAPerister.logger.debug(query.unwrap(org.hibernate.Query.class).getQueryString());
+            JPAPerister.logger.debug(selectJpql);
         }
+        final Query query = entityManager.createQuery(selectJpql);
+        query.setParameter("id", id);
         return query;
     }
+
+    /**
+     * Read the persisted State in the caller's transaction, or a transaction of its own. The query is built within the transaction, so the shared
+     * EntityManager binds it to that transaction's EntityManager
+     */
+    private String readState(final Object id) {
+        final TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        final String state = tt.execute(status -> selectState(buildQuery(id)));
+        return (state == null) ? getStart().getName() : state;
+    }
+
+    private String selectState(final Query query) {
+        try {
+            return getCodec().decode(query.getSingleResult());
+        } catch (final NoResultException nre) {
+            return getStart().getName();
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package org.statefulj.persistence.jpa;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import org.statefulj.persistence.annotations.State;
+
+@Entity
+public class CodedOrder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private long id;
+
+    @State
+    private short state;
+
+    public long getId() {
+        return id;
+    }
+
+    public short getState() {
+        return state;
+    }
+}
@@ -18,19 +18,35 @@
 package org.statefulj.persistence.jpa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Id;
+import javax.persistence.Version;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.statefulj.fsm.Persister;
 import org.statefulj.fsm.StaleStateException;
+import org.statefulj.fsm.StateUpdate;
 import org.statefulj.fsm.model.State;
+import org.statefulj.fsm.model.impl.StateImpl;
 import org.statefulj.persistence.jpa.model.StatefulEntity;
 import org.statefulj.persistence.jpa.utils.UnitTestUtils;
 
@@ -38,6 +54,14 @@ import org.statefulj.persistence.jpa.utils.UnitTestUtils;
 @ContextConfiguration({ "/applicationContext-JPAPersisterTests.xml" })
 public class JPAPersisterTest {
 
+    public static class TimestampedOrder extends StatefulEntity {
+        @Id
+        private Long id;
+
+        @Version
+        private Date version;
+    }
+
     @Resource
     Persister<Order> jpaPersister;
 
@@ -47,6 +71,9 @@ public class JPAPersisterTest {
     @Resource
     JpaTransactionManager transactionManager;
 
+    @Resource
+    EntityManagerFactory entityManagerFactory;
+
     @Resource
     State<Order> stateA;
 
@@ -120,7 +147,274 @@ public class JPAPersisterTest {
         State<Order> currentState = jpaPersister.getCurrent(order);
         assertEquals(stateA, currentState);
 
+        try {
+            jpaPersister.setCurrent(order, stateB, stateC);
+        } finally {
+            UnitTestUtils.rollbackTransaction(transactionManager);
+        }
+    }
+
+    @Test
+    public void testStateChangeOutsideTransaction() throws StaleStateException {
+        UnitTestUtils.startTransaction(transactionManager);
+        final Order order = this.orderRepo.save(new Order());
+        UnitTestUtils.commitTransaction(transactionManager);
+
+        // The Order isn't managed outside a transaction, the update runs in a transaction of its own
+        //
+        jpaPersister.setCurrent(order, stateA, stateB);
+        assertEquals(stateB.getName(), order.getState());
+
+        final Order outdated = this.orderRepo.findOne(order.getId());
         jpaPersister.setCurrent(order, stateB, stateC);
+        try {
+            jpaPersister.setCurrent(outdated, stateB, stateA);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(stateC, e.getCurrent(outdated));
+        }
+        assertEquals(stateC.getName(), outdated.getState());
+
+        // Orders that aren't persisted are updated in memory
+        //
+        final Order unsaved = new Order();
+        unsaved.setId(Long.MAX_VALUE);
+        jpaPersister.setCurrent(unsaved, stateA, stateB);
+        assertEquals(stateB.getName(), unsaved.getState());
+
+        UnitTestUtils.startTransaction(transactionManager);
+        assertEquals(stateC.getName(), this.orderRepo.findOne(order.getId()).getState());
+        UnitTestUtils.commitTransaction(transactionManager);
+    }
+
+    @Test
+    public void testAwaitChange() throws Exception {
+        final JPAPerister<Order> persister = new JPAPerister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Order.class,
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory), transactionManager);
+
+        UnitTestUtils.startTransaction(transactionManager);
+        final Order order = this.orderRepo.save(new Order());
+        UnitTestUtils.commitTransaction(transactionManager);
+        final Order outdated = this.orderRepo.findOne(order.getId());
+        persister.setCurrent(order, stateA, stateB);
+
+        // The change was committed before the call, the persisted State is read instead of waiting
+        //
+        final long start = System.currentTimeMillis();
+        assertTrue(persister.awaitChange(outdated, stateA, 10000));
+        assertTrue((System.currentTimeMillis() - start) < 10000);
+        assertEquals(stateB.getName(), outdated.getState());
+
+        // Woken up by a change committed while waiting
+        //
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Boolean> changed = executor.submit(() -> persister.awaitChange(outdated, stateB, 10000));
+            Thread.sleep(100);
+            persister.setCurrent(order, stateB, stateC);
+            assertTrue(changed.get());
+            assertEquals(stateC.getName(), outdated.getState());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(persister.awaitChange(outdated, stateC, 10));
+    }
+
+    @Test
+    public void testBatchStateChange() throws StaleStateException, IllegalArgumentException, IllegalAccessException, NoSuchFieldException, SecurityException {
+        final JPAPerister<Order> persister = new JPAPerister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Order.class,
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory), transactionManager);
+        persister.setBatchSize(2);
+
+        UnitTestUtils.startTransaction(transactionManager);
+
+        final Order first = this.orderRepo.save(new Order());
+        final Order second = this.orderRepo.save(new Order());
+        final Order third = this.orderRepo.save(new Order());
+        final Order stale = this.orderRepo.save(new Order());
+
+        persister.setCurrent(stale, stateA, stateC);
+        final Field stateField = StatefulEntity.class.getDeclaredField("state");
+        stateField.setAccessible(true);
+        stateField.set(stale, stateA.getName());
+
+        final List<StateUpdate<Order>> staleUpdates = persister.setCurrentAll(Arrays.asList(new StateUpdate<>(first, stateA, stateB), new StateUpdate<>(second, stateA, stateB),
+                new StateUpdate<>(stale, stateA, stateB), new StateUpdate<>(third, stateA, stateB)));
+
+        assertEquals(1, staleUpdates.size());
+        assertEquals(stale, staleUpdates.get(0).getStateful());
+        assertEquals(stateC.getName(), stale.getState());
+        assertEquals(stateB.getName(), first.getState());
+        assertEquals(stateB.getName(), third.getState());
+
+        UnitTestUtils.commitTransaction(transactionManager);
+        UnitTestUtils.startTransaction(transactionManager);
+
+        assertEquals(stateB.getName(), this.orderRepo.findOne(first.getId()).getState());
+        assertEquals(stateB.getName(), this.orderRepo.findOne(second.getId()).getState());
+        assertEquals(stateB.getName(), this.orderRepo.findOne(third.getId()).getState());
+        assertEquals(stateC.getName(), this.orderRepo.findOne(stale.getId()).getState());
+
+        // Single updates go through the same prepared statements
+        //
+        final Order managed = this.orderRepo.findOne(first.getId());
+        persister.setCurrent(managed, stateB, stateC);
+        assertEquals(stateC.getName(), managed.getState());
+
+        final Order outdated = this.orderRepo.findOne(stale.getId());
+        stateField.set(outdated, stateB.getName());
+        try {
+            persister.setCurrent(outdated, stateB, stateA);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            // Expected
+        }
+        assertEquals(stateC.getName(), outdated.getState());
+
+        UnitTestUtils.commitTransaction(transactionManager);
+    }
+
+    @Test
+    public void testTransitionAll() throws StaleStateException {
+        final JPAPerister<Order> persister = new JPAPerister<>(Arrays.asList(stateA, stateB, stateC), null, stateA, Order.class,
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory), transactionManager);
+        persister.setBatchSize(2);
+
+        UnitTestUtils.startTransaction(transactionManager);
+        final Order first = this.orderRepo.save(new Order());
+        final Order second = this.orderRepo.save(new Order());
+        final Order other = this.orderRepo.save(new Order());
+        final Order third = this.orderRepo.save(new Order());
+        persister.setCurrent(other, stateA, stateC);
+        UnitTestUtils.commitTransaction(transactionManager);
+
+        // Runs each chunk in its own transaction
+        //
+        final List<Long> moved = persister.transitionAll(Arrays.asList(first.getId(), second.getId(), other.getId(), third.getId()), stateA, stateB);
+        assertEquals(Arrays.asList(first.getId(), second.getId(), third.getId()), moved);
+
+        UnitTestUtils.startTransaction(transactionManager);
+        assertEquals(stateB.getName(), this.orderRepo.findOne(first.getId()).getState());
+        assertEquals(stateB.getName(), this.orderRepo.findOne(third.getId()).getState());
+        assertEquals(stateC.getName(), this.orderRepo.findOne(other.getId()).getState());
+
+        // Joins the caller's transaction
+        //
+        assertEquals(Arrays.asList(other.getId()), persister.transitionAll(Arrays.asList(first.getId(), other.getId()), stateC, stateA));
+        UnitTestUtils.commitTransaction(transactionManager);
+    }
+
+    @Test
+    public void testVersionedStateChange() throws StaleStateException {
+        final State<VersionedOrder> versionedA = new StateImpl<>(stateA.getName());
+        final State<VersionedOrder> versionedB = new StateImpl<>(stateB.getName());
+        final EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        final JPAPerister<VersionedOrder> persister = new JPAPerister<>(Arrays.asList(versionedA, versionedB), null, versionedA, VersionedOrder.class, entityManager,
+                transactionManager);
+        persister.setUseVersion(true);
+
+        UnitTestUtils.startTransaction(transactionManager);
+
+        final VersionedOrder order = new VersionedOrder();
+        entityManager.persist(order);
+
+        persister.setCurrent(order, versionedA, versionedB);
+        assertEquals(stateB.getName(), order.getState());
+        assertEquals(1, order.getVersion());
+
+        persister.setCurrent(order, versionedB, versionedA);
+        assertEquals(2, order.getVersion());
+
+        // Another writer moved the Order A->B->A, the State matches but the version doesn't
+        //
+        entityManager.createQuery("UPDATE VersionedOrder t SET t.version = t.version + 2 WHERE t.id = :id").setParameter("id", order.getId()).executeUpdate();
+        try {
+            persister.setCurrent(order, versionedA, versionedB);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(versionedA, e.getCurrent(order));
+        }
+        assertEquals(4, order.getVersion());
+
+        persister.setCurrent(order, versionedA, versionedB);
+        assertEquals(5, order.getVersion());
+
+        // The pending change is flushed first and bumps the version the update is matched on
+        //
+        order.setAmount(10);
+        persister.setCurrent(order, versionedB, versionedA);
+        assertEquals(7, order.getVersion());
+
+        UnitTestUtils.commitTransaction(transactionManager);
+        UnitTestUtils.startTransaction(transactionManager);
+
+        final VersionedOrder dbOrder = entityManager.find(VersionedOrder.class, order.getId());
+        assertEquals(stateA.getName(), dbOrder.getState());
+        assertEquals(7, dbOrder.getVersion());
+        assertEquals(10, dbOrder.getAmount());
+
+        UnitTestUtils.commitTransaction(transactionManager);
+
+        // Outside a transaction the version of the detached Order is matched against the persisted one
+        //
+        persister.setCurrent(order, versionedA, versionedB);
+        assertEquals(stateB.getName(), order.getState());
+        assertEquals(8, order.getVersion());
+        try {
+            persister.setCurrent(dbOrder, versionedA, versionedB);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(versionedB, e.getCurrent(dbOrder));
+        }
+        assertEquals(8, dbOrder.getVersion());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testVersionRequiresVersionField() {
+        ((JPAPerister<Order>) jpaPersister).setUseVersion(true);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testVersionRequiresNumericVersionField() {
+        final State<TimestampedOrder> timestampedA = new StateImpl<>(stateA.getName());
+        new JPAPerister<>(Arrays.asList(timestampedA), null, timestampedA, TimestampedOrder.class, SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory),
+                transactionManager).setUseVersion(true);
+    }
+
+    @Test
+    public void testCodedStateChange() throws StaleStateException {
+        final State<CodedOrder> codedA = new StateImpl<>(stateA.getName());
+        final State<CodedOrder> codedB = new StateImpl<>(stateB.getName());
+        final State<CodedOrder> codedC = new StateImpl<>(stateC.getName());
+        final EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        final JPAPerister<CodedOrder> persister = new JPAPerister<>(Arrays.asList(codedA, codedB, codedC), null, codedA, CodedOrder.class, entityManager,
+                transactionManager);
+        persister.setStateCodes(Arrays.asList(stateA.getName(), stateB.getName(), stateC.getName()));
+
+        UnitTestUtils.startTransaction(transactionManager);
+
+        final CodedOrder order = new CodedOrder();
+        entityManager.persist(order);
+        assertEquals(codedA, persister.getCurrent(order));
+
+        persister.setCurrent(order, codedA, codedB);
+        assertEquals(1, order.getState());
+        assertEquals(codedB, persister.getCurrent(order));
+
+        try {
+            persister.setCurrent(order, codedC, codedA);
+            fail("Expected StaleStateException");
+        } catch (final StaleStateException e) {
+            assertEquals(codedB, e.getCurrent(order));
+        }
+
+        UnitTestUtils.commitTransaction(transactionManager);
+        UnitTestUtils.startTransaction(transactionManager);
+
+        final Object dbState = entityManager.createQuery("SELECT t.state FROM CodedOrder t WHERE t.id = :id").setParameter("id", order.getId()).getSingleResult();
+        assertEquals(Short.valueOf((short) 1), dbState);
+
         UnitTestUtils.commitTransaction(transactionManager);
     }
 }
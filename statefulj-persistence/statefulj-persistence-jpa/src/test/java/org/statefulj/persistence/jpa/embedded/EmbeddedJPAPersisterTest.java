@@ -103,7 +103,10 @@ public class EmbeddedJPAPersisterTest {
         final State<EmbeddedOrder> currentState = embeddedJPAPersister.getCurrent(order);
         assertEquals(stateA, currentState);
 
-        embeddedJPAPersister.setCurrent(order, stateB, stateC);
-        UnitTestUtils.commitTransaction(transactionManager);
+        try {
+            embeddedJPAPersister.setCurrent(order, stateB, stateC);
+        } finally {
+            UnitTestUtils.rollbackTransaction(transactionManager);
+        }
     }
 }